@@ -94,6 +94,49 @@ dependencies {
     testCompile("junit:junit:4.11")
 }
 
+// benchmarks for the per-cube hot paths, run with: ./gradlew jmh [-PjmhArgs="<jmh options>"]
+val jmhSourceSet = sourceSets.create("jmh") {
+    compileClasspath += sourceSets["main"].output + configurations["compile"]
+    runtimeClasspath += sourceSets["main"].output + configurations["runtime"]
+}
+
+dependencies {
+    "jmhCompile"("org.openjdk.jmh:jmh-core:1.21")
+    "jmhCompile"("org.openjdk.jmh:jmh-generator-annprocess:1.21")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.21")
+}
+
+val jmh by tasks.creating(JavaExec::class) {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks, with the gc profiler to report allocation rate"
+    dependsOn(jmhSourceSet.classesTaskName)
+    classpath = jmhSourceSet.runtimeClasspath
+    main = "org.openjdk.jmh.Main"
+    val resultFile = file("$buildDir/reports/jmh/results.json")
+    doFirst {
+        resultFile.parentFile.mkdirs()
+    }
+    args("-prof", "gc", "-rf", "json", "-rff", resultFile.absolutePath)
+    val extraArgs = project.findProperty("jmhArgs") as String?
+    if (extraArgs != null) {
+        args(extraArgs.split(" ").filter { it.isNotEmpty() })
+    }
+}
+
+// end to end benchmark on a generated world, run with: ./gradlew worldBenchmark [-PworldBenchmarkArgs="<options>"]
+val worldBenchmark by tasks.creating(JavaExec::class) {
+    group = "benchmark"
+    description = "Generates a synthetic cubic chunks world and measures conversion throughput of all converters that can read it"
+    dependsOn(jmhSourceSet.classesTaskName)
+    classpath = jmhSourceSet.runtimeClasspath
+    main = "cubicchunks.converter.lib.convert.SyntheticWorldBenchmark"
+    args("--dir", "$buildDir/world-benchmark")
+    val extraArgs = project.findProperty("worldBenchmarkArgs") as String?
+    if (extraArgs != null) {
+        args(extraArgs.split(" ").filter { it.isNotEmpty() })
+    }
+}
+
 jar.apply {
     manifest.apply {
         attributes["Main-Class"] = "cubicchunks.converter.gui.GuiMain"
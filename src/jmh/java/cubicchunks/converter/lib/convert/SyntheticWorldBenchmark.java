@@ -0,0 +1,421 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert;
+
+import com.flowpowered.nbt.ByteArrayTag;
+import com.flowpowered.nbt.ByteTag;
+import com.flowpowered.nbt.CompoundMap;
+import com.flowpowered.nbt.CompoundTag;
+import com.flowpowered.nbt.IntTag;
+import com.flowpowered.nbt.LongTag;
+import com.flowpowered.nbt.StringTag;
+import com.flowpowered.nbt.stream.NBTOutputStream;
+import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.Dimensions;
+import cubicchunks.converter.lib.IProgressListener;
+import cubicchunks.converter.lib.Registry;
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.conf.command.EditTaskCommands;
+import cubicchunks.converter.lib.conf.command.EditTaskContext;
+import cubicchunks.converter.lib.convert.data.CubicChunksBigCube112Data;
+import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
+import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
+import cubicchunks.converter.lib.convert.io.CubicChunkWriter;
+import cubicchunks.converter.lib.util.CubeFixtures;
+import cubicchunks.converter.lib.util.Utils;
+import cubicchunks.regionlib.impl.EntryLocation2D;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end benchmark: generates a synthetic CubicChunks world and runs every registered converter that can read it.
+ * <p>
+ * Reports columns and cubes per second, peak RSS, GC time and the average and maximum fill of both
+ * {@link WorldConverter} queues. Results are printed and optionally written as CSV, to be kept as a baseline.
+ * <p>
+ * Options:
+ * <pre>
+ * --dir &lt;path&gt;         working directory, the generated world is kept there between runs (default: build/world-benchmark)
+ * --size &lt;n&gt;           world size in columns along X and Z (default: 32)
+ * --height &lt;n&gt;         cubes per column (default: 16)
+ * --entropy &lt;n&gt;        number of different blocks per cube, 1-15 (default: 8)
+ * --seed &lt;n&gt;           random seed (default: 42)
+ * --only &lt;text&gt;        only run converters where reader, writer or converter name contains the text
+ * --edit &lt;command&gt;     edit task command for converters that take a config (can be repeated)
+ * --regenerate        regenerate the world even if it exists
+ * --csv &lt;path&gt;         append results to a CSV file
+ * </pre>
+ */
+public class SyntheticWorldBenchmark {
+
+    private static final List<Class<?>> CUBIC_CHUNKS_INPUTS = Arrays.asList(
+        CubicChunksColumnData.class, PriorityCubicChunksColumnData.class, CubicChunksBigCube112Data.class
+    );
+
+    private Path dir = Paths.get("build", "world-benchmark");
+    private int size = 32;
+    private int height = 16;
+    private int entropy = 8;
+    private long seed = 42;
+    private String only = null;
+    private final List<String> edits = new ArrayList<>();
+    private boolean regenerate = false;
+    private Path csv = null;
+
+    public static void main(String[] args) throws Exception {
+        SyntheticWorldBenchmark benchmark = new SyntheticWorldBenchmark();
+        benchmark.parseArgs(args);
+        benchmark.run();
+        System.exit(0);
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir":
+                    dir = Paths.get(args[++i]);
+                    break;
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--height":
+                    height = Integer.parseInt(args[++i]);
+                    break;
+                case "--entropy":
+                    entropy = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--only":
+                    only = args[++i];
+                    break;
+                case "--edit":
+                    edits.add(args[++i]);
+                    break;
+                case "--regenerate":
+                    regenerate = true;
+                    break;
+                case "--csv":
+                    csv = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        Path world = dir.resolve(String.format("world-%d-%d-%d-%d", size, height, entropy, seed));
+        if (regenerate && Files.exists(world)) {
+            Utils.rm(world);
+        }
+        if (!Files.exists(world)) {
+            long start = System.nanoTime();
+            generateWorld(world);
+            System.out.printf("Generated %d columns, %d cubes in %.2fs%n", size * size, size * size * height,
+                (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Registry.ClassTriple<?, ?, ?> triple : Registry.getConverters()) {
+            if (!CUBIC_CHUNKS_INPUTS.contains(triple.getIn())) {
+                continue;
+            }
+            String in = Registry.getReader(triple.getIn());
+            String out = Registry.getWriter(triple.getOut());
+            String conv = Registry.getConverter(triple.getConverter());
+            if (in == null || out == null || conv == null) {
+                continue;
+            }
+            if (only != null && !(in.contains(only) || out.contains(only) || conv.contains(only))) {
+                continue;
+            }
+            Path dst = dir.resolve("out");
+            if (Files.exists(dst)) {
+                Utils.rm(dst);
+            }
+            Files.createDirectories(dst);
+            try {
+                results.add(runConverter(world, dst, in, out, conv));
+            } finally {
+                Utils.rm(dst);
+            }
+        }
+
+        System.out.println();
+        System.out.println(Result.HEADER);
+        for (Result result : results) {
+            System.out.println(result);
+        }
+        if (csv != null) {
+            boolean writeHeader = !Files.exists(csv);
+            StringBuilder sb = new StringBuilder();
+            if (writeHeader) {
+                sb.append(Result.CSV_HEADER).append('\n');
+            }
+            for (Result result : results) {
+                sb.append(result.toCsv(size, height, entropy)).append('\n');
+            }
+            Files.write(csv, sb.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private Result runConverter(Path src, Path dst, String in, String out, String conv) throws IOException {
+        ConverterConfig conf = new ConverterConfig(new HashMap<>());
+        if (Registry.getConfigLoader(in, out, conv) != null) {
+            // don't use the config loaders, they read config files from the working directory
+            EditTaskContext context = new EditTaskContext();
+            for (String edit : edits) {
+                EditTaskCommands.handleCommand(context, edit);
+            }
+            conf.set("relocations", context.getTasks());
+        }
+
+        WorldConverter<?, ?> converter = new WorldConverter<>(
+            Registry.getLevelConverter(in, out, conv).apply(src, dst),
+            Registry.getReader(in).apply(src, conf),
+            Registry.getConverter(in, out, conv).apply(conf),
+            Registry.getWriter(out).apply(dst)
+        );
+
+        System.gc();
+        resetPeakRss();
+        long gcTimeBefore = totalGcTime();
+        QueueSampler sampler = new QueueSampler(converter);
+        sampler.start();
+
+        long start = System.nanoTime();
+        converter.convert(new IProgressListener() {
+            @Override public void update() {
+            }
+
+            @Override public ErrorHandleResult error(Throwable t) {
+                t.printStackTrace();
+                return ErrorHandleResult.STOP_KEEP_DATA;
+            }
+        });
+        long time = System.nanoTime() - start;
+
+        sampler.interrupt();
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Result result = new Result(in + " -> " + out + " (" + conv + ")", time, size * size, size * size * height,
+            peakRssKb(), totalGcTime() - gcTimeBefore, sampler);
+        System.out.println(result);
+        return result;
+    }
+
+    private void generateWorld(Path world) throws Exception {
+        Utils.createDirectories(world);
+        writeLevelDat(world.resolve("level.dat"));
+
+        Dimension overworld = Dimensions.getDimensions().stream().filter(d -> d.getDirectory().isEmpty()).findAny()
+            .orElseThrow(() -> new IllegalStateException("No overworld dimension"));
+        Random rand = new Random(seed);
+        try (CubicChunkWriter writer = new CubicChunkWriter(world)) {
+            for (int x = -size / 2; x < size - size / 2; x++) {
+                for (int z = -size / 2; z < size - size / 2; z++) {
+                    Map<Integer, ByteBuffer> cubes = new HashMap<>();
+                    for (int y = 0; y < height; y++) {
+                        cubes.put(y, Utils.writeCompressed(CubeFixtures.randomCube(rand, x, y, z, entropy), false));
+                    }
+                    writer.accept(new CubicChunksColumnData(overworld, new EntryLocation2D(x, z), Utils.writeCompressed(makeColumn(x, z), false), cubes));
+                }
+            }
+        }
+    }
+
+    private CompoundTag makeColumn(int x, int z) throws IOException {
+        CompoundMap level = new CompoundMap();
+        level.put(new ByteTag("v", (byte) 1));
+        level.put(new IntTag("x", x));
+        level.put(new IntTag("z", z));
+        level.put(new LongTag("InhabitedTime", 0));
+        level.put(new ByteArrayTag("Biomes", new byte[256]));
+
+        // heightmap with the top of the generated cubes as the top block, and no segments
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (int i = 0; i < 256; i++) {
+                out.writeInt(0);
+                out.writeInt(height * 16 - 1);
+                out.writeShort(0);
+            }
+        }
+        level.put(new ByteArrayTag("OpacityIndex", bytes.toByteArray()));
+
+        CompoundMap root = new CompoundMap();
+        root.put(new CompoundTag("Level", level));
+        return new CompoundTag("", root);
+    }
+
+    private static void writeLevelDat(Path path) throws IOException {
+        CompoundMap data = new CompoundMap();
+        data.put(new StringTag("LevelName", "Synthetic benchmark world"));
+        data.put(new StringTag("generatorName", "VanillaCubic"));
+        data.put(new ByteTag("isCubicWorld", (byte) 1));
+        data.put(new IntTag("version", 19133));
+        CompoundMap root = new CompoundMap();
+        root.put(new CompoundTag("Data", data));
+        try (NBTOutputStream out = new NBTOutputStream(Files.newOutputStream(path))) {
+            out.writeTag(new CompoundTag("", root));
+        }
+    }
+
+    private static long totalGcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    // linux only, peak RSS can be reset by writing 5 to clear_refs
+    private static void resetPeakRss() {
+        try {
+            Files.write(Paths.get("/proc/self/clear_refs"), "5".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException | UnsupportedOperationException | SecurityException ignored) {
+        }
+    }
+
+    private static long peakRssKb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException | SecurityException ignored) {
+        }
+        return -1;
+    }
+
+    private static class QueueSampler extends Thread {
+        private final WorldConverter<?, ?> converter;
+        private long samples;
+        private long convertFillSum, ioFillSum;
+        private int convertFillMax, ioFillMax;
+
+        QueueSampler(WorldConverter<?, ?> converter) {
+            super("Queue sampler");
+            setDaemon(true);
+            this.converter = converter;
+        }
+
+        @Override public void run() {
+            while (!isInterrupted()) {
+                int convertFill = converter.getConvertBufferFill();
+                int ioFill = converter.getIOBufferFill();
+                samples++;
+                convertFillSum += convertFill;
+                ioFillSum += ioFill;
+                convertFillMax = Math.max(convertFillMax, convertFill);
+                ioFillMax = Math.max(ioFillMax, ioFill);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        double convertFillAvg() {
+            return samples == 0 ? 0 : convertFillSum / (double) samples / converter.getConvertBufferMaxSize();
+        }
+
+        double ioFillAvg() {
+            return samples == 0 ? 0 : ioFillSum / (double) samples / converter.getIOBufferMaxSize();
+        }
+
+        double convertFillMax() {
+            return convertFillMax / (double) converter.getConvertBufferMaxSize();
+        }
+
+        double ioFillMax() {
+            return ioFillMax / (double) converter.getIOBufferMaxSize();
+        }
+    }
+
+    private static class Result {
+        static final String HEADER = String.format("%-70s %10s %10s %10s %10s %8s %15s %15s",
+            "converter", "time [s]", "columns/s", "cubes/s", "RSS [MB]", "GC [ms]", "convert q avg/max", "io q avg/max");
+        static final String CSV_HEADER = "converter,size,height,entropy,time_s,columns_per_s,cubes_per_s,peak_rss_kb,gc_ms,"
+            + "convert_queue_avg,convert_queue_max,io_queue_avg,io_queue_max";
+
+        final String name;
+        final double seconds;
+        final int columns;
+        final int cubes;
+        final long peakRssKb;
+        final long gcMillis;
+        final double convertQueueAvg, convertQueueMax, ioQueueAvg, ioQueueMax;
+
+        Result(String name, long nanos, int columns, int cubes, long peakRssKb, long gcMillis, QueueSampler queues) {
+            this.name = name;
+            this.seconds = nanos / (double) TimeUnit.SECONDS.toNanos(1);
+            this.columns = columns;
+            this.cubes = cubes;
+            this.peakRssKb = peakRssKb;
+            this.gcMillis = gcMillis;
+            this.convertQueueAvg = queues.convertFillAvg();
+            this.convertQueueMax = queues.convertFillMax();
+            this.ioQueueAvg = queues.ioFillAvg();
+            this.ioQueueMax = queues.ioFillMax();
+        }
+
+        String toCsv(int size, int height, int entropy) {
+            return String.format("\"%s\",%d,%d,%d,%.3f,%.1f,%.1f,%d,%d,%.3f,%.3f,%.3f,%.3f", name, size, height, entropy,
+                seconds, columns / seconds, cubes / seconds, peakRssKb, gcMillis, convertQueueAvg, convertQueueMax, ioQueueAvg, ioQueueMax);
+        }
+
+        @Override public String toString() {
+            return String.format("%-70s %10.2f %10.1f %10.1f %10.1f %8d %7.1f%%/%5.1f%% %7.1f%%/%5.1f%%", name, seconds,
+                columns / seconds, cubes / seconds, peakRssKb / 1024.0, gcMillis,
+                convertQueueAvg * 100, convertQueueMax * 100, ioQueueAvg * 100, ioQueueMax * 100);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.robinton2cc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Measures the XYZ axis swizzle done for every Robinton cube (once for blocks and 3 times for nibble arrays), into
+ * preallocated output arrays like the converter does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Robinton2CCConverterBenchmark {
+
+    private byte[] blocks;
+    private byte[] nibbles;
+    private byte[] blocksOut;
+    private byte[] nibblesOut;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        blocks = new byte[4096];
+        nibbles = new byte[2048];
+        rand.nextBytes(blocks);
+        rand.nextBytes(nibbles);
+        blocksOut = new byte[4096];
+        nibblesOut = new byte[2048];
+    }
+
+    @Benchmark
+    public byte[] swizzleFull() {
+        Robinton2CCConverter.swizzleFull(blocks, blocksOut);
+        return blocksOut;
+    }
+
+    @Benchmark
+    public byte[] swizzleNibble() {
+        Robinton2CCConverter.swizzleNibble(nibbles, nibblesOut);
+        return nibblesOut;
+    }
+
+    @Benchmark
+    public byte[] swizzleCube() {
+        Robinton2CCConverter.swizzleFull(blocks, blocksOut);
+        Robinton2CCConverter.swizzleNibble(nibbles, nibblesOut);
+        Robinton2CCConverter.swizzleNibble(nibbles, nibblesOut);
+        Robinton2CCConverter.swizzleNibble(nibbles, nibblesOut);
+        return nibblesOut;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import com.flowpowered.nbt.CompoundMap;
+import com.flowpowered.nbt.CompoundTag;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Cube data generators for benchmarks. Cubes start from {@link Utils#emptyCube(int, int, int)} and get filled with
+ * random blocks from a palette of common vanilla blocks, so that the work done per block is realistic.
+ */
+public class CubeFixtures {
+
+    // stone, grass, dirt, cobblestone, planks, sand, log, leaves, oak stairs, chest, torch, rails, vine, glass
+    private static final int[] PALETTE = {1, 2, 3, 4, 5, 12, 17, 18, 53, 54, 50, 66, 106, 20};
+
+    /**
+     * Creates a cube filled with random blocks.
+     *
+     * @param entropy The number of different blocks used, from 1 (a single block type) to 15 (palette and air)
+     */
+    public static CompoundTag randomCube(Random rand, int x, int y, int z, int entropy) {
+        CompoundTag tag = Utils.emptyCube(x, y, z);
+        CompoundMap section = section(tag);
+        fillRandom(rand, (byte[]) section.get("Blocks").getValue(), (byte[]) section.get("Data").getValue(), entropy);
+        rand.nextBytes((byte[]) section.get("SkyLight").getValue());
+        rand.nextBytes((byte[]) section.get("BlockLight").getValue());
+        return tag;
+    }
+
+    public static void fillRandom(Random rand, byte[] blocks, byte[] meta, int entropy) {
+        for (int i = 0; i < blocks.length; i++) {
+            int paletteIdx = rand.nextInt(Math.max(1, Math.min(entropy, PALETTE.length + 1)));
+            blocks[i] = (byte) (paletteIdx == PALETTE.length ? 0 : PALETTE[paletteIdx]);
+        }
+        for (int i = 0; i < meta.length; i++) {
+            // keep metadata in the range most blocks accept
+            meta[i] = (byte) (rand.nextInt(4) | rand.nextInt(4) << 4);
+        }
+    }
+
+    public static CompoundMap section(CompoundTag cubeTag) {
+        CompoundMap level = (CompoundMap) cubeTag.getValue().get("Level").getValue();
+        return ((CompoundTag) ((List<?>) level.get("Sections").getValue()).get(0)).getValue();
+    }
+
+    /**
+     * A cube that can be restored to its original block data, for benchmarking tasks that modify cubes in place.
+     */
+    public static class ResettableCube {
+        private final CompoundTag tag;
+        private final byte[] blocks;
+        private final byte[] meta;
+
+        public ResettableCube(CompoundTag tag) {
+            this.tag = tag;
+            CompoundMap section = section(tag);
+            this.blocks = ((byte[]) section.get("Blocks").getValue()).clone();
+            this.meta = ((byte[]) section.get("Data").getValue()).clone();
+        }
+
+        public CompoundTag reset() {
+            CompoundMap section = section(tag);
+            System.arraycopy(blocks, 0, (byte[]) section.get("Blocks").getValue(), 0, blocks.length);
+            System.arraycopy(meta, 0, (byte[]) section.get("Data").getValue(), 0, meta.length);
+            return tag;
+        }
+    }
+}
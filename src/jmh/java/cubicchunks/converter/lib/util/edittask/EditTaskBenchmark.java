@@ -0,0 +1,133 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util.edittask;
+
+import com.flowpowered.nbt.CompoundTag;
+import cubicchunks.converter.lib.conf.command.EditTaskContext;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.CubeFixtures;
+import cubicchunks.converter.lib.util.ImmutablePair;
+import cubicchunks.converter.lib.util.Matrix4d;
+import cubicchunks.converter.lib.util.Schematic;
+import cubicchunks.converter.lib.util.Vector3i;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures {@link EditTask#actOnCube} for the tasks that rewrite block data.
+ * Every invocation restores the original block data first, {@link #resetOnly()} measures that overhead alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditTaskBenchmark {
+
+    private static final Vector3i CUBE_POS = new Vector3i(3, 4, 5);
+
+    @Param({"1", "4", "15"})
+    public int entropy;
+
+    private CubeFixtures.ResettableCube cube;
+    private EditTaskContext.EditTaskConfig config;
+
+    private EditTask rotate;
+    private EditTask mirror;
+    private EditTask replace;
+    private EditTask replaceAnyMeta;
+    private EditTask set;
+    private EditTask schematic;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        cube = new CubeFixtures.ResettableCube(CubeFixtures.randomCube(rand, CUBE_POS.getX(), CUBE_POS.getY(), CUBE_POS.getZ(), entropy));
+        config = new EditTaskContext.EditTaskConfig();
+
+        BoundingBox box = new BoundingBox(0, 0, 0, 7, 7, 7);
+        rotate = new RotateEditTask(box, new Vector3i(0, 0, 0), 90);
+        mirror = new MirrorEditTask(box, MirrorEditTask.Axis.X);
+        replace = new ReplaceEditTask(box, (byte) 1, (byte) 0, (byte) 4, (byte) 0);
+        replaceAnyMeta = new ReplaceEditTask(box, (byte) 1, (byte) -1, (byte) 4, (byte) 0);
+        set = new SetEditTask(box, (byte) 1, (byte) 0);
+
+        // a schematic covering the whole cube, with an unaligned offset
+        byte[] blocks = new byte[32 * 32 * 32];
+        byte[] data = new byte[blocks.length];
+        CubeFixtures.fillRandom(rand, blocks, new byte[blocks.length / 2], entropy);
+        Matrix4d transform = new Matrix4d().setIdentity().translate(new Vector3i(CUBE_POS.getX() * 16 - 7, CUBE_POS.getY() * 16 - 7, CUBE_POS.getZ() * 16 - 7));
+        schematic = new SchematicTask(new Schematic(32, 32, 32, blocks, new byte[blocks.length / 2], data), transform, false, "");
+    }
+
+    private List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> run(EditTask task) {
+        return task.actOnCube(CUBE_POS, config, cube.reset(), 0);
+    }
+
+    @Benchmark
+    public CompoundTag resetOnly() {
+        return cube.reset();
+    }
+
+    @Benchmark
+    public Object rotate() {
+        return run(rotate);
+    }
+
+    @Benchmark
+    public Object mirror() {
+        return run(mirror);
+    }
+
+    @Benchmark
+    public Object replace() {
+        return run(replace);
+    }
+
+    @Benchmark
+    public Object replaceAnyMeta() {
+        return run(replaceAnyMeta);
+    }
+
+    @Benchmark
+    public Object set() {
+        return run(set);
+    }
+
+    @Benchmark
+    public Object schematic() {
+        return run(schematic);
+    }
+}
@@ -160,6 +160,11 @@ public class ConverterWorker extends SwingWorker<Throwable, Void> {
         int total = converter.getTotalChunks();
         double progress = 100 * submitted / (float) total;
         String message = String.format("Submitted chunk tasks: %d/%d %.2f%%", submitted, total, progress);
+        long copiedFiles = converter.getCopiedFilesSize();
+        long totalFiles = converter.getTotalFilesSize();
+        if (copiedFiles < totalFiles) {
+            message += String.format(", copied files: %d/%d KiB", copiedFiles, totalFiles);
+        }
         this.progressBar.setMinimum(0);
         this.progressBar.setMaximum(total);
         this.progressBar.setValue(submitted);
@@ -170,14 +175,14 @@ public class ConverterWorker extends SwingWorker<Throwable, Void> {
         this.convertQueueFill.setMinimum(0);
         this.convertQueueFill.setMaximum(maxSize);
         this.convertQueueFill.setValue(size);
-        this.convertQueueFill.setString(String.format("Convert queue fill: %d/%d", size, maxSize));
+        this.convertQueueFill.setString(String.format("Convert queue fill: %d/%d KiB", size, maxSize));
 
         maxSize = this.converter.getIOBufferMaxSize();
         size = this.converter.getIOBufferFill();
         this.ioQueueFill.setMinimum(0);
         this.ioQueueFill.setMaximum(maxSize);
         this.ioQueueFill.setValue(size);
-        this.ioQueueFill.setString(String.format("IO queue fill: %d/%d", size, maxSize));
+        this.ioQueueFill.setString(String.format("IO queue fill: %d/%d KiB", size, maxSize));
     }
 
     @Override
@@ -26,6 +26,8 @@ package cubicchunks.converter.gui;
 import cubicchunks.converter.lib.Registry;
 import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.WorldConverter;
+import cubicchunks.converter.lib.convert.data.DualSourceCubicChunksColumnData;
+import cubicchunks.converter.lib.convert.io.DualSourceCubicChunkReader;
 import cubicchunks.converter.lib.util.Utils;
 
 import javax.swing.*;
@@ -307,6 +309,14 @@ public class GuiFrame extends JFrame {
             JOptionPane.showMessageDialog(this, "Error while checking if destination directory is empty!", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        Path secondSrcPath = null;
+        ConverterDesc selected = (ConverterDesc) selectConverter.getSelectedItem();
+        if (DualSourceCubicChunksColumnData.class.equals(Registry.getReaderClass(selected.getIn()))) {
+            secondSrcPath = selectSecondSourceWorld(srcPath);
+            if (secondSrcPath == null) {
+                return;
+            }
+        }
         progressBar.setStringPainted(true);
         convertFill.setStringPainted(true);
         ioFill.setStringPainted(true);
@@ -352,17 +362,44 @@ public class GuiFrame extends JFrame {
                 return;
             }
         }
+        conf.set("srcWorld", srcPath);
+        conf.set("dstWorld", dstPath);
+        if (secondSrcPath != null) {
+            conf.set(DualSourceCubicChunkReader.SECOND_SOURCE_KEY, secondSrcPath);
+        }
         WorldConverter<?, ?> converter = new WorldConverter<>(
             Registry.getLevelConverter(inFormat, outFormat, converterName).apply(srcPath, dstPath),
             Registry.getReader(inFormat).apply(srcPath, conf),
             Registry.getConverter(inFormat, outFormat, converterName).apply(conf),
-            Registry.getWriter(outFormat).apply(dstPath)
+            Registry.getWriter(outFormat).apply(dstPath),
+            srcPath,
+            dstPath,
+            conf
         );
 
         ConverterWorker w = new ConverterWorker(converter, progressBar, convertFill, ioFill, updateProgress, () -> failed.set(true), this);
         w.execute();
     }
 
+    private Path selectSecondSourceWorld(Path srcPath) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogType(JFileChooser.CUSTOM_DIALOG);
+        chooser.setDialogTitle("Select the world to merge missing cubes from");
+        chooser.setMultiSelectionEnabled(false);
+        chooser.setFileHidingEnabled(false);
+        chooser.setCurrentDirectory(srcPath.getParent() != null ? srcPath.getParent().toFile() : getDefaultSaveLocation().toFile());
+        if (chooser.showDialog(this, "Select") != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        Path path = chooser.getSelectedFile().toPath();
+        if (!Files.isDirectory(path)) {
+            JOptionPane.showMessageDialog(this, "The second source world is not a directory!", "Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+        return path;
+    }
+
     private static class ConverterDesc {
         private final String in;
         private final String out;
@@ -28,6 +28,7 @@ import cubicchunks.converter.headless.command.HeadlessCommands;
 import cubicchunks.converter.lib.Registry;
 import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.WorldConverter;
+import cubicchunks.converter.lib.convert.io.DualSourceCubicChunkReader;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -93,11 +94,23 @@ public class HeadlessConverter {
             }
         }
 
+        conf.set("srcWorld", context.getSrcWorld());
+        conf.set("dstWorld", context.getDstWorld());
+        if (context.getPreviousWorld() != null) {
+            conf.set("previousWorld", context.getPreviousWorld());
+        }
+        if (context.getSecondSrcWorld() != null) {
+            conf.set(DualSourceCubicChunkReader.SECOND_SOURCE_KEY, context.getSecondSrcWorld());
+        }
+
         WorldConverter<?, ?> converter = new WorldConverter<>(
             Registry.getLevelConverterById(context.getInFormat(), context.getOutFormat(), context.getConverterName()).apply(context.getSrcWorld(), context.getDstWorld()),
             Registry.getReaderById(context.getInFormat()).apply(context.getSrcWorld(), conf),
             Registry.getConverterById(context.getInFormat(), context.getOutFormat(), context.getConverterName()).apply(conf),
-            Registry.getWriterById(context.getOutFormat()).apply(context.getDstWorld())
+            Registry.getWriterById(context.getOutFormat()).apply(context.getDstWorld()),
+            context.getSrcWorld(),
+            context.getDstWorld(),
+            conf
         );
 
         HeadlessWorker w = new HeadlessWorker(converter, HeadlessConverter::done, () -> failed.set(true));
@@ -41,7 +41,10 @@ public class HeadlessWorker {
     private final Runnable onFail;
     private Runnable onDone;
 
+    private static final long METRICS_INTERVAL_MS = 5000;
+
     private long lastProcessTime = System.currentTimeMillis();
+    private long lastMetricsTime = System.currentTimeMillis();
 
     private static final Logger LOGGER = Logger.getLogger(EditTaskCommands.class.getSimpleName());
 
@@ -110,13 +113,20 @@ public class HeadlessWorker {
 
         int maxSize = this.converter.getConvertBufferMaxSize();
         int size = this.converter.getConvertBufferFill();
-        String messageConvert = String.format("Convert queue fill: %d/%d", size, maxSize);
+        String messageConvert = String.format("Convert queue fill: %d/%d KiB", size, maxSize);
 
         maxSize = this.converter.getIOBufferMaxSize();
         size = this.converter.getIOBufferFill();
-        String messageWrite = String.format("IO queue fill: %d/%d", size, maxSize);
+        String messageWrite = String.format("IO queue fill: %d/%d KiB", size, maxSize);
+
+        String messageFiles = String.format("Copied files: %d/%d KiB", converter.getCopiedFilesSize(), converter.getTotalFilesSize());
 
-        System.out.println(messageRead + "\n" + messageConvert + "\n" + messageWrite);
+        System.out.println(messageRead + "\n" + messageConvert + "\n" + messageWrite + "\n" + messageFiles);
+
+        if (System.currentTimeMillis() - lastMetricsTime > METRICS_INTERVAL_MS) {
+            System.out.println(converter.getMetrics().toJson());
+            lastMetricsTime = System.currentTimeMillis();
+        }
     }
 
     private static String exceptionString(Throwable t) {
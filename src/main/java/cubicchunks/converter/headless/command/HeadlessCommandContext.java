@@ -28,6 +28,8 @@ import java.nio.file.Path;
 public class HeadlessCommandContext {
     private Path srcWorld;
     private Path dstWorld;
+    private Path previousWorld;
+    private Path secondSrcWorld;
 
     private String inFormat;
     private String outFormat;
@@ -49,6 +51,22 @@ public class HeadlessCommandContext {
         this.dstWorld = dstWorld;
     }
 
+    public Path getPreviousWorld() {
+        return previousWorld;
+    }
+
+    public void setPreviousWorld(Path previousWorld) {
+        this.previousWorld = previousWorld;
+    }
+
+    public Path getSecondSrcWorld() {
+        return secondSrcWorld;
+    }
+
+    public void setSecondSrcWorld(Path secondSrcWorld) {
+        this.secondSrcWorld = secondSrcWorld;
+    }
+
     public String getInFormat() {
         return inFormat;
     }
@@ -78,6 +96,8 @@ public class HeadlessCommandContext {
         return "HeadlessCommandContext{" +
             "srcWorld=" + srcWorld +
             ", dstWorld=" + dstWorld +
+            ", previousWorld=" + previousWorld +
+            ", secondSrcWorld=" + secondSrcWorld +
             ", inFormat='" + inFormat + '\'' +
             ", outFormat='" + outFormat + '\'' +
             ", converterName='" + converterName + '\'' +
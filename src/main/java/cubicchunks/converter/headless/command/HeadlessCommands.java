@@ -39,6 +39,8 @@ public class HeadlessCommands {
     static {
         SourceWorldCommand.register(dispatcher);
         DestinationWorldCommand.register(dispatcher);
+        PreviousWorldCommand.register(dispatcher);
+        SecondSourceWorldCommand.register(dispatcher);
         InFormatCommand.register(dispatcher);
         OutFormatCommand.register(dispatcher);
         ConverterNameCommand.register(dispatcher);
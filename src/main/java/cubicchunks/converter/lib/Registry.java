@@ -36,6 +36,8 @@ import cubicchunks.converter.lib.convert.anvil2cc.Anvil2CCDataConverter;
 import cubicchunks.converter.lib.convert.anvil2cc.Anvil2CCLevelInfoConverter;
 import cubicchunks.converter.lib.convert.cc2bigCubeCc.Cc2BigCubeCcDataConverter;
 import cubicchunks.converter.lib.convert.cc2bigCubeCc.Cc2BigCubeCcLevelInfoConverter;
+import cubicchunks.converter.lib.convert.cc2ccmerging.CC2CCDualSourceMergingDataConverter;
+import cubicchunks.converter.lib.convert.cc2ccmerging.CC2CCDualSourceMergingLevelInfoConverter;
 import cubicchunks.converter.lib.convert.cc2ccrelocating.CC2CCRelocatingDataConverter;
 import cubicchunks.converter.lib.convert.cc2ccrelocating.CC2CCRelocatingLevelInfoConverter;
 import cubicchunks.converter.lib.convert.cc2anvil.CC2AnvilDataConverter;
@@ -75,6 +77,7 @@ public class Registry {
         registerReader("CubicChunks 1.10 - 1.12 - Relocating", "cubicchunks:1.10-1.12-relocating", PriorityCubicChunkReader::new, PriorityCubicChunksColumnData.class);
         registerReader("RobintonCubicChunks", "robinton_cubicchunks", RobintonChunkReader::new, RobintonColumnData.class);
         registerReader("CubicChunks 1.10 - 1.12 (BigCube)", "cubicchunks_bigcube:1.10-1.12", CubicChunksBigCube112Reader::new, CubicChunksBigCube112Data.class);
+        registerReader("CubicChunks 1.10 - 1.12 - Merging", "cubicchunks:1.10-1.12-merging", DualSourceCubicChunkReader::create, DualSourceCubicChunksColumnData.class);
 
         registerWriter("Anvil", "anvil", AnvilChunkWriter::new, MultilayerAnvilChunkData.class);
         registerWriter("CubicChunks 1.10 - 1.12", "cubicchunks:1.10-1.12", CubicChunkWriter::new, CubicChunksColumnData.class);
@@ -86,6 +89,7 @@ public class Registry {
         registerConverter("Relocating", "relocating", CC2CCRelocatingDataConverter::new, CC2CCRelocatingLevelInfoConverter::new, CC2CCRelocatingDataConverter::loadConfig, PriorityCubicChunksColumnData.class, PriorityCubicChunksColumnData.class, CC2CCRelocatingDataConverter.class);
         registerConverter("Default", "default", Robinton2CCConverter::new, Robinton2CCLevelInfoConverter::new, RobintonColumnData.class, CubicChunksColumnData.class, Robinton2CCConverter.class);
         registerConverter("Default", "default", Cc2BigCubeCcDataConverter::new, Cc2BigCubeCcLevelInfoConverter::new, CubicChunksBigCube112Data.class, CubicChunksProtoBigCubeData.class, Cc2BigCubeCcDataConverter.class);
+        registerConverter("Merging", "merging", CC2CCDualSourceMergingDataConverter::new, CC2CCDualSourceMergingLevelInfoConverter::new, CC2CCRelocatingDataConverter::loadConfig, DualSourceCubicChunksColumnData.class, CubicChunksColumnData.class, CC2CCDualSourceMergingDataConverter.class);
     }
 
     // can't have all named register because of type erasure
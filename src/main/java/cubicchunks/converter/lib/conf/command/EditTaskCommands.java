@@ -49,6 +49,7 @@ public class EditTaskCommands {
         SchematicCommand.register(dispatcher);
         ConfigCommand.register(dispatcher);
         RotateCommand.register(dispatcher);
+        MirrorCommand.register(dispatcher);
     }
 
     public static int handleCommand(EditTaskContext context, String command) {
@@ -26,20 +26,41 @@ package cubicchunks.converter.lib.conf.command;
 import cubicchunks.converter.lib.util.edittask.EditTask;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class EditTaskContext {
     private final EditTaskConfig config = new EditTaskConfig();
     private final List<EditTask> tasks = new ArrayList<>();
+    private final Map<EditTask, String> taskSources = new IdentityHashMap<>();
+    private String currentSource;
 
     public void addEditTask(EditTask task) {
         this.tasks.add(task);
+        if (currentSource != null) {
+            this.taskSources.put(task, currentSource);
+        }
     }
 
     public List<EditTask> getTasks() {
         return tasks;
     }
 
+    /**
+     * Sets the source (usually the config line) recorded for tasks added after this call.
+     */
+    public void setCurrentSource(String source) {
+        this.currentSource = source;
+    }
+
+    /**
+     * @return the config source each task was created from, for tasks added while a source was set
+     */
+    public Map<EditTask, String> getTaskSources() {
+        return taskSources;
+    }
+
     public EditTaskConfig config() {
         return config;
     }
@@ -25,14 +25,23 @@ package cubicchunks.converter.lib.convert;
 
 import cubicchunks.converter.lib.conf.ConverterConfig;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Converts chunk data from {@link IN} format to {@link OUT} format.
  */
 public interface ChunkDataConverter<IN, OUT> {
 
+    /**
+     * Prepares the source and destination worlds for conversion. Called once when the conversion starts, before any
+     * chunk is read and before {@link LevelInfoConverter#startCopy}, and not when the converter is only created.
+     */
+    default void start() throws IOException {
+    }
+
     /**
      * Converts the supplied input. This is expected to be called from multiple threads.
      *
@@ -41,6 +50,17 @@ public interface ChunkDataConverter<IN, OUT> {
      */
     Set<OUT> convert(IN input);
 
+    /**
+     * Converts the supplied input, passing every converted piece to {@code out} as soon as it's done, so that it can be
+     * written while the rest is still being converted. {@code out} may be called from multiple threads at once.
+     *
+     * @param input The chunk data to convert
+     * @param out Receives the converted chunk data
+     */
+    default void convert(IN input, Consumer<OUT> out) {
+        convert(input).forEach(out);
+    }
+
     default ConverterConfig getConfig() {
         return null;
     }
@@ -24,6 +24,7 @@
 package cubicchunks.converter.lib.convert;
 
 import java.io.IOException;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -55,4 +56,19 @@ public interface ChunkDataReader<T> extends AutoCloseable {
      * Can be called from any thread.
      */
     void stop();
+
+    /**
+     * Returns the key identifying given data in the {@link ConversionJournal}.
+     * Readers that don't support resuming a conversion return null.
+     */
+    default String getJournalKey(T data) {
+        return null;
+    }
+
+    /**
+     * Makes {@link #countInputChunks(Runnable)} and {@link #loadChunks(Consumer, Predicate)} skip chunks with the given
+     * journal keys, as they have been converted by a previous run. Called before counting starts.
+     */
+    default void skipConverted(Set<String> journalKeys) {
+    }
 }
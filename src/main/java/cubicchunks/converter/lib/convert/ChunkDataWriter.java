@@ -44,4 +44,15 @@ public interface ChunkDataWriter<T> extends AutoCloseable {
      * Deletes all written data.
      */
     void discardData() throws IOException;
+
+    /**
+     * Writes all data accepted so far to disk. Never called concurrently with {@link #accept(Object)}.
+     * <p>
+     * If it throws, data accepted since the last successful flush may be missing, and later flushes may keep failing.
+     *
+     * @return false if this writer can't write the data before being closed
+     */
+    default boolean flush() throws IOException {
+        return false;
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert;
+
+import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.util.Utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Append-only journal of converted input chunks, kept in the destination world so that an interrupted conversion can be
+ * resumed.
+ * <p>
+ * Each line is the key of one input chunk (see {@link ChunkDataReader#getJournalKey(Object)}) terminated by
+ * {@link #TERMINATOR}, so that a line cut off when the converter was killed is ignored. Keys are only appended after
+ * the writer has flushed the corresponding output to disk.
+ * <p>
+ * The first line is a header identifying the conversion (see {@link #header}). A journal with a different header was
+ * left by a conversion of another world, or with another converter or config, and is ignored and replaced.
+ */
+public class ConversionJournal implements Closeable {
+
+    public static final String FILE_NAME = "converter-journal.txt";
+    private static final char TERMINATOR = ';';
+    private static final String HEADER_PREFIX = "#";
+
+    private final Path file;
+    private final String header;
+    private final Set<String> completed;
+    // the existing file is replaced instead of appended to if it doesn't belong to this conversion
+    private boolean replace;
+    private FileChannel channel;
+
+    private ConversionJournal(Path file, String header, Set<String> completed, boolean replace) {
+        this.file = file;
+        this.header = header;
+        this.completed = completed;
+        this.replace = replace;
+    }
+
+    /**
+     * Opens the journal in the given world directory, reading entries left by a previous, unfinished conversion with the
+     * same header.
+     *
+     * @param header identifies the conversion, see {@link #header}
+     */
+    public static ConversionJournal open(Path worldDir, String header) throws IOException {
+        Path file = worldDir.resolve(FILE_NAME);
+        Set<String> completed = new HashSet<>();
+        if (!Files.exists(file)) {
+            return new ConversionJournal(file, header, completed, true);
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER_PREFIX + header)) {
+            System.out.println("Ignoring conversion journal in " + worldDir + ", it was written by a different conversion");
+            return new ConversionJournal(file, header, completed, true);
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            if (!line.isEmpty() && line.charAt(line.length() - 1) == TERMINATOR) {
+                completed.add(line.substring(0, line.length() - 1));
+            }
+        }
+        return new ConversionJournal(file, header, completed, false);
+    }
+
+    /**
+     * Builds the header identifying a conversion: the source world, the classes doing the conversion and a hash of the
+     * config. Only config values that are strings, numbers, booleans or paths are hashed. Config loaders with other
+     * values should also put a fingerprint string of them in the config.
+     *
+     * @param stages the reader, converter, writer and so on, identified by their class
+     */
+    public static String header(Path srcWorld, ConverterConfig config, Object... stages) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("src=").append(srcWorld.toAbsolutePath().normalize()).append(" converter=");
+        for (int i = 0; i < stages.length; i++) {
+            sb.append(i == 0 ? "" : ",").append(stages[i].getClass().getName());
+        }
+        Map<String, Object> values = new TreeMap<>(config.getDefaults());
+        values.putAll(config.getOverrides());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean || value instanceof Path) {
+                    digest.update((entry.getKey() + "=" + value + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            sb.append(" config=");
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
+        return sb.toString();
+    }
+
+    public static String columnKey(Dimension dimension, int x, int z) {
+        return dimension.getDirectory() + ":" + x + "," + z;
+    }
+
+    /**
+     * @return keys of chunks converted by previous runs
+     */
+    public Set<String> getCompleted() {
+        return Collections.unmodifiableSet(completed);
+    }
+
+    /**
+     * Appends the given keys and forces them to disk. The data of these chunks must already be on disk.
+     */
+    public synchronized void append(Collection<String> keys) throws IOException {
+        if (keys.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        if (channel == null) {
+            Utils.createDirectories(file.getParent());
+            if (replace) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                sb.append(HEADER_PREFIX).append(header).append('\n');
+                replace = false;
+            } else {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+        }
+        for (String key : keys) {
+            sb.append(key).append(TERMINATOR).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Deletes the journal, called when the conversion finished and there is nothing to resume.
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
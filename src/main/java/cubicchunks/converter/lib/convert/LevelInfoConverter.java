@@ -23,6 +23,8 @@
  */
 package cubicchunks.converter.lib.convert;
 
+import cubicchunks.converter.lib.util.FileCopier;
+
 import java.io.IOException;
 
 /**
@@ -31,7 +33,16 @@ import java.io.IOException;
 public interface LevelInfoConverter<IN, OUT> {
 
     /**
-     * Converts world metadata and copies unmodified non-chunk files.
+     * Starts copying unmodified non-chunk files with {@code copier}. Called before the first chunk is read, so that
+     * the copy runs together with chunk conversion. The copier can also be used from {@link #convert()}, the
+     * conversion waits for all queued files before finishing.
+     */
+    default void startCopy(FileCopier copier) throws IOException {
+    }
+
+    /**
+     * Converts world metadata. Called once all chunks are converted and all files queued in
+     * {@link #startCopy(FileCopier)} are copied.
      */
     void convert() throws IOException;
 }
@@ -24,28 +24,55 @@
 package cubicchunks.converter.lib.convert;
 
 import cubicchunks.converter.lib.IProgressListener;
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.data.EstimatedSize;
+import cubicchunks.converter.lib.util.ByteBudget;
+import cubicchunks.converter.lib.util.FileCopier;
+import cubicchunks.converter.lib.util.PipelineMetrics;
+import cubicchunks.converter.lib.util.UncheckedInterruptedException;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
+
 public class WorldConverter<IN, OUT> {
 
     private static final int THREADS = Runtime.getRuntime().availableProcessors()+1;
-    private static final int CONVERT_QUEUE_SIZE = 64 * THREADS * 2;
-    private static final int IO_QUEUE_SIZE = 32 * THREADS * 10;
+    // fraction of max heap that can be used by chunks waiting for conversion or IO
+    private static final String MEMORY_FRACTION_PROPERTY = "cubicchunks.converter.memoryFraction";
+    private static final double DEFAULT_MEMORY_FRACTION = 0.5;
+    private static final long REBALANCE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // no stage gets less than 1/MIN_STAGE_SHARE of the memory budget
+    private static final int MIN_STAGE_SHARE = 8;
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+    // regions and NBT helpers record into the global PipelineMetrics, so only one conversion can run at a time
+    private static final AtomicBoolean CONVERTING = new AtomicBoolean();
 
     private final LevelInfoConverter<IN, OUT> levelConverter;
     private final ChunkDataReader<IN> reader;
     private final ChunkDataConverter<IN, OUT> converter;
     private final ChunkDataWriter<OUT> writer;
+    // replaced by the global metrics when the conversion starts
+    private volatile PipelineMetrics metrics = new PipelineMetrics();
 
     private final AtomicInteger chunkCount;
     private volatile int copyChunks;
 
-    private final ArrayBlockingQueue<Runnable> convertQueueImpl;
-    private final ArrayBlockingQueue<Runnable> ioQueueImpl;
+    private final long memoryBudget;
+    // bytes of input chunks submitted for conversion, and of converted chunks submitted for writing
+    private final ByteBudget convertBudget;
+    private final ByteBudget ioBudget;
+    private final Object rebalanceLock = new Object();
+    private volatile long lastRebalance = System.nanoTime();
+    private double convertRate = -1;
+    private double ioRate = -1;
 
     private final ExecutorService convertQueue;
     private final ExecutorService ioQueue;
@@ -57,40 +84,97 @@ public class WorldConverter<IN, OUT> {
     private Thread countingThread;
     private IProgressListener.ErrorHandleResult errorResult;
 
+    @Nullable private volatile ConversionJournal journal;
+    @Nullable private volatile FileCopier fileCopier;
+    // journal keys of chunks with all output accepted by the writer, but not flushed yet
+    private final ConcurrentLinkedQueue<String> unflushedKeys = new ConcurrentLinkedQueue<>();
+    private long lastCheckpoint = System.nanoTime();
+
     public WorldConverter(
         LevelInfoConverter<IN, OUT> levelConverter,
         ChunkDataReader<IN> reader,
         ChunkDataConverter<IN, OUT> converter,
         ChunkDataWriter<OUT> writer) {
+        this(levelConverter, reader, converter, writer, null, null, null);
+    }
+
+    /**
+     * @param dstPath the destination world. If not null, converted chunks are recorded in a {@link ConversionJournal}
+     * there, and a conversion of the same source world with the same converter and config interrupted before is
+     * resumed.
+     * @param srcPath the source world, required if dstPath is not null
+     * @param config config of the conversion, required if dstPath is not null
+     */
+    public WorldConverter(
+        LevelInfoConverter<IN, OUT> levelConverter,
+        ChunkDataReader<IN> reader,
+        ChunkDataConverter<IN, OUT> converter,
+        ChunkDataWriter<OUT> writer,
+        @Nullable Path srcPath,
+        @Nullable Path dstPath,
+        @Nullable ConverterConfig config) {
 
         this.levelConverter = levelConverter;
         this.reader = reader;
         this.converter = converter;
         this.writer = writer;
 
-        RejectedExecutionHandler handler = ((r, executor) -> {
-            try {
-                if (!executor.isShutdown()) {
-                    executor.getQueue().put(r);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RejectedExecutionException("Executor was interrupted while the task was waiting to put on work queue", e);
-            }
-        });
-
         chunkCount = new AtomicInteger(0);
 
-        convertQueueImpl = new ArrayBlockingQueue<>(CONVERT_QUEUE_SIZE);
-        convertQueue = new ThreadPoolExecutor(THREADS, THREADS, 1000L, TimeUnit.MILLISECONDS, convertQueueImpl);
-        ((ThreadPoolExecutor)convertQueue).setRejectedExecutionHandler(handler);
+        // the queues are bounded by the memory budget instead of the amount of tasks, as chunk sizes vary a lot
+        memoryBudget = (long) (Runtime.getRuntime().maxMemory() * memoryFraction());
+        convertBudget = new ByteBudget(memoryBudget / 2);
+        ioBudget = new ByteBudget(memoryBudget / 2);
+
+        convertQueue = new ThreadPoolExecutor(THREADS, THREADS, 1000L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+
+        ioQueue = new ThreadPoolExecutor(1, 1, 1000L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
 
-        ioQueueImpl = new ArrayBlockingQueue<>(IO_QUEUE_SIZE);
-        ioQueue = new ThreadPoolExecutor(1, 1, 1000L, TimeUnit.MILLISECONDS, ioQueueImpl);
-        ((ThreadPoolExecutor)ioQueue).setRejectedExecutionHandler(handler);
+        if (dstPath != null) {
+            try {
+                String header = ConversionJournal.header(srcPath, config, levelConverter, reader, converter, writer);
+                journal = ConversionJournal.open(dstPath, header);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.out.println("Couldn't read conversion journal, the conversion won't be resumable");
+            }
+        }
     }
 
+    /**
+     * Runs the conversion. Only one conversion can run in a JVM at a time, as all of them would record into the same
+     * {@link PipelineMetrics}.
+     *
+     * @throws IllegalStateException if another conversion is running
+     */
     public void convert(IProgressListener progress) throws IOException {
+        if (!CONVERTING.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another conversion is already running");
+        }
+        try {
+            metrics = PipelineMetrics.reset();
+            doConvert(progress);
+        } finally {
+            CONVERTING.set(false);
+        }
+    }
+
+    private void doConvert(IProgressListener progress) throws IOException {
+        converter.start();
+        Set<String> resumed = journal == null ? null : journal.getCompleted();
+        if (resumed != null && !resumed.isEmpty()) {
+            System.out.println("Resuming conversion, skipping " + resumed.size() + " already converted chunks");
+            reader.skipConverted(resumed);
+        }
+        // non-chunk files are copied while chunks are converted
+        FileCopier copier = new FileCopier(progress::update);
+        fileCopier = copier;
+        try {
+            levelConverter.startCopy(copier);
+        } catch (IOException | RuntimeException e) {
+            copier.close();
+            throw e;
+        }
         startCounting(progress);
 
         System.out.println("Starting conversion");
@@ -99,7 +183,18 @@ public class WorldConverter<IN, OUT> {
         final Object object = new Object();
         try {
             reader.loadChunks(inData -> {
-                convertQueue.submit(new ChunkConvertTask<>(converter, writer, progress, this, ioQueue, inData));
+                String journalKey = journal == null ? null : reader.getJournalKey(inData);
+                if (journalKey != null && resumed.contains(journalKey)) {
+                    return;
+                }
+                long size = EstimatedSize.of(inData);
+                try {
+                    convertBudget.acquire(size);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for memory to convert the chunk", e);
+                }
+                convertQueue.submit(new ChunkConvertTask<>(converter, writer, progress, this, ioQueue, inData, size, journalKey));
                 synchronized(object) {
                     copyChunks++;
                 }
@@ -142,11 +237,14 @@ public class WorldConverter<IN, OUT> {
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            boolean writerClosed = false;
             try {
                 writer.close();
+                writerClosed = true;
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            closeJournal(writerClosed && !discardConverted);
             if (discardConverted) {
                 try {
                     writer.discardData();
@@ -158,11 +256,24 @@ public class WorldConverter<IN, OUT> {
         if (errorResult == IProgressListener.ErrorHandleResult.IGNORE || errorResult == IProgressListener.ErrorHandleResult.IGNORE_ALL) {
             errored = false;
         }
-        if (!errored) {
-            levelConverter.convert();
+        try {
+            if (!errored) {
+                copier.await();
+                levelConverter.convert();
+                copier.await();
+                if (journal != null) {
+                    journal.delete();
+                }
+            }
+        } finally {
+            copier.close();
         }
         double dt = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
         System.out.println("Conversion time = " + dt);
+        System.out.println("Conversion metrics = " + metrics.toJson());
+        if (!metrics.getRankedEditTasks().isEmpty()) {
+            System.out.println(metrics.editTaskSummary());
+        }
     }
 
     public int getSubmittedChunks() {
@@ -173,20 +284,164 @@ public class WorldConverter<IN, OUT> {
         return chunkCount.get();
     }
 
+    /**
+     * @return per-stage latencies and I/O counters of this conversion
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return estimated size of chunks waiting for or being converted, in KiB
+     */
     public int getConvertBufferFill() {
-        return convertQueueImpl.size();
+        return (int) (convertBudget.getUsed() >> 10);
     }
 
+    /**
+     * @return current memory budget of the convert stage in KiB, changes with throughput of the conversion
+     */
     public int getConvertBufferMaxSize() {
-        return CONVERT_QUEUE_SIZE;
+        return (int) (convertBudget.getLimit() >> 10);
     }
 
+    /**
+     * @return estimated size of converted chunks waiting for or being written, in KiB
+     */
     public int getIOBufferFill() {
-        return ioQueueImpl.size();
+        return (int) (ioBudget.getUsed() >> 10);
     }
 
+    /**
+     * @return current memory budget of the IO stage in KiB, changes with throughput of the conversion
+     */
     public int getIOBufferMaxSize() {
-        return IO_QUEUE_SIZE;
+        return (int) (ioBudget.getLimit() >> 10);
+    }
+
+    /**
+     * @return size of the non-chunk files copied so far, in KiB
+     */
+    public long getCopiedFilesSize() {
+        FileCopier copier = fileCopier;
+        return copier == null ? 0 : copier.getCopiedBytes() >> 10;
+    }
+
+    /**
+     * @return size of all non-chunk files found so far, in KiB
+     */
+    public long getTotalFilesSize() {
+        FileCopier copier = fileCopier;
+        return copier == null ? 0 : copier.getTotalBytes() >> 10;
+    }
+
+    private static double memoryFraction() {
+        String value = System.getProperty(MEMORY_FRACTION_PROPERTY);
+        if (value == null) {
+            return DEFAULT_MEMORY_FRACTION;
+        }
+        try {
+            double fraction = Double.parseDouble(value);
+            if (fraction > 0 && fraction <= 1) {
+                return fraction;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        System.out.println("Invalid " + MEMORY_FRACTION_PROPERTY + " value " + value + ", using " + DEFAULT_MEMORY_FRACTION);
+        return DEFAULT_MEMORY_FRACTION;
+    }
+
+    /**
+     * Splits the memory budget between the convert and IO stages in inverse proportion to their measured throughput.
+     * A stage that keeps up doesn't need a deep queue, so most of the memory goes to the slower one.
+     */
+    private void rebalanceBudgetsIfNeeded() {
+        if (System.nanoTime() - lastRebalance < REBALANCE_INTERVAL_NANOS) {
+            return;
+        }
+        synchronized (rebalanceLock) {
+            long now = System.nanoTime();
+            if (now - lastRebalance < REBALANCE_INTERVAL_NANOS) {
+                return;
+            }
+            double dt = (now - lastRebalance) / (double) TimeUnit.SECONDS.toNanos(1);
+            lastRebalance = now;
+            convertRate = smoothRate(convertRate, convertBudget.takeReleasedBytes() / dt);
+            ioRate = smoothRate(ioRate, ioBudget.takeReleasedBytes() / dt);
+
+            long minBudget = memoryBudget / MIN_STAGE_SHARE;
+            double totalRate = convertRate + ioRate;
+            // each stage gets the share of the other one's rate, nothing measured yet means an even split
+            double convertShare = totalRate > 0 ? ioRate / totalRate : 0.5;
+            long convertLimit = (long) (memoryBudget * convertShare);
+            convertLimit = Math.min(memoryBudget - minBudget, Math.max(minBudget, convertLimit));
+            convertBudget.setLimit(convertLimit);
+            ioBudget.setLimit(memoryBudget - convertLimit);
+        }
+    }
+
+    private static double smoothRate(double previous, double current) {
+        return previous < 0 ? current : previous * 0.5 + current * 0.5;
+    }
+
+    private void onChunkWritten(String journalKey) {
+        unflushedKeys.add(journalKey);
+    }
+
+    /**
+     * Flushes the writer and records written chunks in the journal, at most every {@link #CHECKPOINT_INTERVAL_NANOS}.
+     * Only called from the IO thread.
+     */
+    private void checkpointIfNeeded() throws IOException {
+        ConversionJournal journal = this.journal;
+        if (journal == null || System.nanoTime() - lastCheckpoint < CHECKPOINT_INTERVAL_NANOS) {
+            return;
+        }
+        lastCheckpoint = System.nanoTime();
+        // all of these have been accepted by the writer before the flush
+        List<String> keys = drainUnflushedKeys();
+        boolean flushed;
+        try {
+            flushed = writer.flush();
+        } catch (IOException | RuntimeException e) {
+            // any of the drained chunks may be missing, so none of them can be journaled, now or later
+            System.out.println("Flushing converted chunks failed, the conversion won't be resumable from here on");
+            this.journal = null;
+            journal.close();
+            throw e;
+        }
+        if (!flushed) {
+            System.out.println("Output format doesn't support flushing data, the conversion won't be resumable");
+            this.journal = null;
+            journal.close();
+            return;
+        }
+        journal.append(keys);
+    }
+
+    private void closeJournal(boolean writerFlushed) {
+        ConversionJournal journal = this.journal;
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (writerFlushed) {
+                journal.append(drainUnflushedKeys());
+            }
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private List<String> drainUnflushedKeys() {
+        List<String> keys = new ArrayList<>();
+        String key;
+        while ((key = unflushedKeys.poll()) != null) {
+            keys.add(key);
+        }
+        return keys;
     }
 
     private void startCounting(IProgressListener progress) {
@@ -236,6 +491,8 @@ public class WorldConverter<IN, OUT> {
         private WorldConverter<IN, OUT> worldConv;
         private final ExecutorService ioExecutor;
         private final IN toConvert;
+        private final long size;
+        @Nullable private final String journalKey;
 
         ChunkConvertTask(
             ChunkDataConverter<IN, OUT> converter,
@@ -243,7 +500,9 @@ public class WorldConverter<IN, OUT> {
             IProgressListener progress,
             WorldConverter<IN, OUT> worldConv,
             ExecutorService ioExecutor,
-            IN toConvert) {
+            IN toConvert,
+            long size,
+            @Nullable String journalKey) {
 
             this.converter = converter;
             this.writer = writer;
@@ -251,16 +510,40 @@ public class WorldConverter<IN, OUT> {
             this.worldConv = worldConv;
             this.ioExecutor = ioExecutor;
             this.toConvert = toConvert;
+            this.size = size;
+            this.journalKey = journalKey;
         }
 
         @Override public Void call() {
             try {
-                Set<OUT> converted_arr = converter.convert(toConvert);
-                for(OUT converted : converted_arr) {
-                    IOWriteTask<OUT> data = new IOWriteTask<>(converted, writer, worldConv, progress);
-                    progress.update();
-                    ioExecutor.submit(data);
+                long start = System.nanoTime();
+                // counts one extra until the conversion is done, so that the chunk isn't journaled while pieces of it
+                // are still being converted
+                AtomicInteger remainingWrites = journalKey == null ? null : new AtomicInteger(1);
+                try {
+                    converter.convert(toConvert, converted -> {
+                        long outSize = EstimatedSize.of(converted);
+                        try {
+                            worldConv.ioBudget.acquire(outSize);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new UncheckedInterruptedException();
+                        }
+                        if (remainingWrites != null) {
+                            remainingWrites.incrementAndGet();
+                        }
+                        IOWriteTask<OUT> data = new IOWriteTask<>(converted, outSize, writer, worldConv, progress, journalKey, remainingWrites);
+                        progress.update();
+                        ioExecutor.submit(data);
+                    });
+                } finally {
+                    worldConv.convertBudget.release(size);
+                }
+                worldConv.metrics.record(PipelineMetrics.CONVERT, System.nanoTime() - start);
+                if (journalKey != null && remainingWrites.decrementAndGet() == 0) {
+                    worldConv.onChunkWritten(journalKey);
                 }
+                worldConv.rebalanceBudgetsIfNeeded();
             } catch (Throwable t) {
                 worldConv.handleError(t, progress);
             }
@@ -271,20 +554,38 @@ public class WorldConverter<IN, OUT> {
     private static class IOWriteTask<OUT> implements Callable<Void> {
 
         private final OUT toWrite;
+        private final long size;
         private final ChunkDataWriter<OUT> writer;
         private final WorldConverter worldConv;
         private final IProgressListener progress;
+        @Nullable private final String journalKey;
+        @Nullable private final AtomicInteger remainingWrites;
 
-        IOWriteTask(OUT toWrite, ChunkDataWriter<OUT> writer, WorldConverter worldConv, IProgressListener progress) {
+        IOWriteTask(OUT toWrite, long size, ChunkDataWriter<OUT> writer, WorldConverter worldConv, IProgressListener progress,
+            @Nullable String journalKey, @Nullable AtomicInteger remainingWrites) {
             this.toWrite = toWrite;
+            this.size = size;
             this.writer = writer;
             this.worldConv = worldConv;
             this.progress = progress;
+            this.journalKey = journalKey;
+            this.remainingWrites = remainingWrites;
         }
 
         @Override public Void call() {
             try {
-                writer.accept(toWrite);
+                long start = System.nanoTime();
+                try {
+                    writer.accept(toWrite);
+                } finally {
+                    worldConv.ioBudget.release(size);
+                }
+                worldConv.getMetrics().record(PipelineMetrics.WRITE, System.nanoTime() - start);
+                if (journalKey != null && remainingWrites.decrementAndGet() == 0) {
+                    worldConv.onChunkWritten(journalKey);
+                }
+                worldConv.checkpointIfNeeded();
+                worldConv.rebalanceBudgetsIfNeeded();
             } catch (Throwable t) {
                 worldConv.handleError(t, progress);
             }
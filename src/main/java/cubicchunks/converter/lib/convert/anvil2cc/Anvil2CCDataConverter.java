@@ -28,10 +28,10 @@ import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
+import cubicchunks.converter.lib.util.EmptyCubeTemplate;
 import cubicchunks.converter.lib.util.Utils;
 import cubicchunks.regionlib.impl.EntryLocation2D;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -45,57 +45,66 @@ import static java.util.Collections.singletonList;
 // TODO: use kyori NBT
 public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData, CubicChunksColumnData> {
 
-    private static final Map<Integer, String> TE_REGISTRY = new HashMap<>();
+    // tile entity id by 12-bit block id
+    private static final String[] TE_REGISTRY = new String[4096];
+    // true for the low 8 bits of every block id that has a tile entity, to quickly skip sections without them
+    private static final boolean[] TE_LOW_BITS = new boolean[256];
 
     static {
-        TE_REGISTRY.put(61, "furnace");
-        TE_REGISTRY.put(62, "furnace");
-        TE_REGISTRY.put(54, "chest");
-        TE_REGISTRY.put(146, "chest");
-        TE_REGISTRY.put(130, "ender_chest");
-        TE_REGISTRY.put(84, "jukebox");
-        TE_REGISTRY.put(23, "dispenser");
-        TE_REGISTRY.put(158, "dropper");
-        TE_REGISTRY.put(63, "sign");
-        TE_REGISTRY.put(68, "sign");
-        TE_REGISTRY.put(52, "mob_spawner");
-        TE_REGISTRY.put(25, "noteblock");
-        // TE_REGISTRY.put(, "piston");
-        TE_REGISTRY.put(117, "brewing_stand");
-        TE_REGISTRY.put(116, "enchanting_table");
-        TE_REGISTRY.put(119, "end_portal");
-        TE_REGISTRY.put(138, "beacon");
-        TE_REGISTRY.put(144, "skull");
-        TE_REGISTRY.put(151, "daylight_detector");
-        TE_REGISTRY.put(178, "daylight_detector");
-        TE_REGISTRY.put(154, "hopper");
-        TE_REGISTRY.put(149, "comparator");
-        TE_REGISTRY.put(150, "comparator");
-        TE_REGISTRY.put(140, "flower_pot");
-        TE_REGISTRY.put(176, "banner");
-        TE_REGISTRY.put(177, "banner");
-        TE_REGISTRY.put(255, "structure_block");
-        TE_REGISTRY.put(209, "end_gateway");
-        TE_REGISTRY.put(137, "command_block");
-        TE_REGISTRY.put(210, "command_block");
-        TE_REGISTRY.put(211, "command_block");
-        TE_REGISTRY.put(219, "shulker_box");
-        TE_REGISTRY.put(220, "shulker_box");
-        TE_REGISTRY.put(221, "shulker_box");
-        TE_REGISTRY.put(222, "shulker_box");
-        TE_REGISTRY.put(223, "shulker_box");
-        TE_REGISTRY.put(224, "shulker_box");
-        TE_REGISTRY.put(225, "shulker_box");
-        TE_REGISTRY.put(226, "shulker_box");
-        TE_REGISTRY.put(227, "shulker_box");
-        TE_REGISTRY.put(228, "shulker_box");
-        TE_REGISTRY.put(229, "shulker_box");
-        TE_REGISTRY.put(230, "shulker_box");
-        TE_REGISTRY.put(231, "shulker_box");
-        TE_REGISTRY.put(232, "shulker_box");
-        TE_REGISTRY.put(233, "shulker_box");
-        TE_REGISTRY.put(234, "shulker_box");
-        TE_REGISTRY.put(26, "bed");
+        TE_REGISTRY[61] = "furnace";
+        TE_REGISTRY[62] = "furnace";
+        TE_REGISTRY[54] = "chest";
+        TE_REGISTRY[146] = "chest";
+        TE_REGISTRY[130] = "ender_chest";
+        TE_REGISTRY[84] = "jukebox";
+        TE_REGISTRY[23] = "dispenser";
+        TE_REGISTRY[158] = "dropper";
+        TE_REGISTRY[63] = "sign";
+        TE_REGISTRY[68] = "sign";
+        TE_REGISTRY[52] = "mob_spawner";
+        TE_REGISTRY[25] = "noteblock";
+        // TE_REGISTRY[] = "piston";
+        TE_REGISTRY[117] = "brewing_stand";
+        TE_REGISTRY[116] = "enchanting_table";
+        TE_REGISTRY[119] = "end_portal";
+        TE_REGISTRY[138] = "beacon";
+        TE_REGISTRY[144] = "skull";
+        TE_REGISTRY[151] = "daylight_detector";
+        TE_REGISTRY[178] = "daylight_detector";
+        TE_REGISTRY[154] = "hopper";
+        TE_REGISTRY[149] = "comparator";
+        TE_REGISTRY[150] = "comparator";
+        TE_REGISTRY[140] = "flower_pot";
+        TE_REGISTRY[176] = "banner";
+        TE_REGISTRY[177] = "banner";
+        TE_REGISTRY[255] = "structure_block";
+        TE_REGISTRY[209] = "end_gateway";
+        TE_REGISTRY[137] = "command_block";
+        TE_REGISTRY[210] = "command_block";
+        TE_REGISTRY[211] = "command_block";
+        TE_REGISTRY[219] = "shulker_box";
+        TE_REGISTRY[220] = "shulker_box";
+        TE_REGISTRY[221] = "shulker_box";
+        TE_REGISTRY[222] = "shulker_box";
+        TE_REGISTRY[223] = "shulker_box";
+        TE_REGISTRY[224] = "shulker_box";
+        TE_REGISTRY[225] = "shulker_box";
+        TE_REGISTRY[226] = "shulker_box";
+        TE_REGISTRY[227] = "shulker_box";
+        TE_REGISTRY[228] = "shulker_box";
+        TE_REGISTRY[229] = "shulker_box";
+        TE_REGISTRY[230] = "shulker_box";
+        TE_REGISTRY[231] = "shulker_box";
+        TE_REGISTRY[232] = "shulker_box";
+        TE_REGISTRY[233] = "shulker_box";
+        TE_REGISTRY[234] = "shulker_box";
+        TE_REGISTRY[26] = "bed";
+
+        for (int id = 0; id < TE_REGISTRY.length; id++) {
+            if (TE_REGISTRY[id] != null) {
+                TE_LOW_BITS[id & 0xFF] = true;
+            }
+        }
     }
     private final boolean fixMissingTileEntities;
 
@@ -111,8 +120,16 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
 
     public Set<CubicChunksColumnData> convert(AnvilChunkData input) {
         try {
-            Map<Integer, ByteBuffer> cubes = extractCubeData(input.getData());
-            ByteBuffer column = extractColumnData(input.getData());
+            // decode once, the column and all cubes are built from the same tag
+            CompoundTag tag = Utils.readCompressed(Utils.newInputStream(input.getData()));
+            Map<Integer, ByteBuffer> cubes = Utils.writeCompressed(extractCubeData(tag));
+            // make sure the 0-15 range is there because it's using vanilla generator which expects it to be the case
+            for (int y = 0; y < 16; y++) {
+                if (!cubes.containsKey(y)) {
+                    cubes.put(y, EmptyCubeTemplate.DEFAULT.create(input.getPosition().getEntryX(), y, input.getPosition().getEntryZ()));
+                }
+            }
+            ByteBuffer column = Utils.writeCompressed(extractColumnData(tag), false);
             EntryLocation2D location = new EntryLocation2D(input.getPosition().getEntryX(), input.getPosition().getEntryZ());
             return Collections.singleton(new CubicChunksColumnData(input.getDimension(), location, column, cubes));
         } catch (IOException impossible) {
@@ -120,14 +137,6 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
         }
     }
 
-
-    private ByteBuffer extractColumnData(ByteBuffer vanillaData) throws IOException {
-        ByteArrayInputStream in = new ByteArrayInputStream(vanillaData.array());
-        CompoundTag tag = Utils.readCompressed(in);
-        CompoundTag columnTag = extractColumnData(tag);
-        return Utils.writeCompressed(columnTag, false);
-    }
-
     private CompoundTag extractColumnData(CompoundTag tag) throws IOException {
         /*
          *
@@ -172,7 +181,8 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
         CompoundMap levelMap = new CompoundMap();
         CompoundMap srcLevel = (CompoundMap) tag.getValue().get("Level").getValue();
 
-        int[] srcHeightMap = fixHeightmap((int[]) srcLevel.get("HeightMap").getValue());
+        // copy, the cubes keep the vanilla height map in LightingInfo
+        int[] srcHeightMap = fixHeightmap(((int[]) srcLevel.get("HeightMap").getValue()).clone());
 
         levelMap.put(new IntTag("v", 1));
         levelMap.put(new IntTag("x", (Integer) srcLevel.get("xPos").getValue()));
@@ -211,16 +221,6 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
         return buf.toByteArray();
     }
 
-    private Map<Integer, ByteBuffer> extractCubeData(ByteBuffer vanillaData) throws IOException {
-        ByteArrayInputStream in = new ByteArrayInputStream(vanillaData.array());
-        Map<Integer, CompoundTag> tags = extractCubeData(Utils.readCompressed(in));
-        Map<Integer, ByteBuffer> bytes = new HashMap<>();
-        for (Integer y : tags.keySet()) {
-            bytes.put(y, Utils.writeCompressed(tags.get(y), false));
-        }
-        return bytes;
-    }
-
     @SuppressWarnings("unchecked")
     private Map<Integer, CompoundTag> extractCubeData(CompoundTag srcRootTag) {
         /*
@@ -325,12 +325,6 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
             }
             tags.put(y, new CompoundTag("", root));
         }
-        // make sure the 0-15 range is there because it's using vanilla generator which expects it to be the case
-        for (int y = 0; y < 16; y++) {
-            if (!tags.containsKey(y)) {
-                tags.put(y, Utils.emptyCube(x, y, z));
-            }
-        }
         return tags;
     }
 
@@ -339,41 +333,60 @@ public class Anvil2CCDataConverter implements ChunkDataConverter<AnvilChunkData,
         if (!section.containsKey("Blocks")) {
             return tileEntities;
         }
+        byte[] blocks = ((ByteArrayTag) section.get("Blocks")).getValue();
+        if (!mayHaveTileEntities(blocks)) {
+            return tileEntities;
+        }
         final IntTag zeroTag = new IntTag("", 0);
 
-        byte[] blocks = ((ByteArrayTag) section.get("Blocks")).getValue();
         byte[] add = section.containsKey("Add") ? ((ByteArrayTag) section.get("Add")).getValue() : null;
         byte[] add2neid = section.containsKey("Add2") ? ((ByteArrayTag) section.get("Add2")).getValue() : null;
 
-        Map<Integer, CompoundTag> teMap = new HashMap<>();
+        // one bit for each block that already has a tile entity
+        long[] existing = new long[4096 / 64];
         for (CompoundTag tag : tileEntities.getValue()) {
             CompoundMap te = tag.getValue();
             int x = ((Number) te.getOrDefault("x", zeroTag).getValue()).intValue();
             int y = ((Number) te.getOrDefault("y", zeroTag).getValue()).intValue();
             int z = ((Number) te.getOrDefault("z", zeroTag).getValue()).intValue();
-            int idx = y & 0xF << 8 | z & 0xF << 4 | x & 0xF;
-            teMap.put(idx, tag);
+            int idx = (y & 0xF) << 8 | (z & 0xF) << 4 | x & 0xF;
+            existing[idx >>> 6] |= 1L << idx;
         }
+        List<CompoundTag> added = null;
         for (int i = 0; i < 4096; i++) {
+            if (!TE_LOW_BITS[blocks[i] & 0xFF] || (existing[i >>> 6] & 1L << i) != 0) {
+                continue;
+            }
+            int toAdd = add == null ? 0 : getNibble(add, i);
+            toAdd = toAdd | (add2neid == null ? 0 : getNibble(add2neid, i) << 4);
+            int id = (toAdd << 8) | (blocks[i] & 0xFF);
+            String teId = id < TE_REGISTRY.length ? TE_REGISTRY[id] : null;
+            if (teId == null) {
+                continue;
+            }
             int x = i & 15;
             int y = i >> 8 & 15;
             int z = i >> 4 & 15;
+            CompoundMap map = new CompoundMap();
+            map.put(new StringTag("id", teId));
+            map.put(new IntTag("x", cubeX * 16 + x));
+            map.put(new IntTag("y", cubeY * 16 + y));
+            map.put(new IntTag("z", cubeZ * 16 + z));
+            if (added == null) {
+                added = new ArrayList<>(tileEntities.getValue());
+            }
+            added.add(new CompoundTag("", map));
+        }
+        return added == null ? tileEntities : new ListTag<>(tileEntities.getName(), CompoundTag.class, added);
+    }
 
-            int toAdd = add == null ? 0 : getNibble(add, i);
-            toAdd = (toAdd & 0xF) | (add2neid == null ? 0 : getNibble(add2neid, i) << 4);
-            int id = (toAdd << 8) | (blocks[i] & 0xFF);
-            String teId = TE_REGISTRY.get(id);
-            if (teId != null && !teMap.containsKey(i)) {
-                CompoundMap map = new CompoundMap();
-                map.put(new StringTag("id", teId));
-                map.put(new IntTag("x", cubeX * 16 + x));
-                map.put(new IntTag("y", cubeY * 16 + y));
-                map.put(new IntTag("z", cubeZ * 16 + z));
-                CompoundTag tag = new CompoundTag("", map);
-                teMap.put(i, tag);
+    private static boolean mayHaveTileEntities(byte[] blocks) {
+        for (byte block : blocks) {
+            if (TE_LOW_BITS[block & 0xFF]) {
+                return true;
             }
         }
-        return new ListTag<>(tileEntities.getName(), CompoundTag.class, new ArrayList<>(teMap.values()));
+        return false;
     }
 
     private static int getNibble(byte[] array, int i) {
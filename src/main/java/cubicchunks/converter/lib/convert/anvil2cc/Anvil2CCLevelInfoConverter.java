@@ -31,6 +31,7 @@ import com.flowpowered.nbt.Tag;
 import com.flowpowered.nbt.stream.NBTInputStream;
 import com.flowpowered.nbt.stream.NBTOutputStream;
 import cubicchunks.converter.lib.Dimensions;
+import cubicchunks.converter.lib.util.FileCopier;
 import cubicchunks.converter.lib.util.Utils;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
@@ -50,6 +51,15 @@ public class Anvil2CCLevelInfoConverter implements LevelInfoConverter<AnvilChunk
         this.dstDir = dstDir;
     }
 
+    @Override public void startCopy(FileCopier copier) throws IOException {
+        copier.copyEverythingExcept(srcDir, dstDir, file ->
+            file.toString().contains("level.dat") || file.toString().contains("cubicChunksData.dat") ||
+                Dimensions.getDimensions().stream().anyMatch(dim ->
+                    srcDir.resolve(dim.getDirectory()).resolve("region").equals(file)
+                )
+        );
+    }
+
     @Override public void convert() throws IOException {
         Utils.createDirectories(dstDir);
         CompoundTag root;
@@ -86,15 +96,6 @@ public class Anvil2CCLevelInfoConverter implements LevelInfoConverter<AnvilChunk
             Files.createDirectories(dstDir);
 
             nbtOut.writeTag(new CompoundTag(root.getName(), newRoot));
-
-            Utils.copyEverythingExcept(srcDir, srcDir, dstDir, file ->
-                    file.toString().contains("level.dat") || file.toString().contains("cubicChunksData.dat") ||
-                        Dimensions.getDimensions().stream().anyMatch(dim ->
-                            srcDir.resolve(dim.getDirectory()).resolve("region").equals(file)
-                        ),
-                f -> {
-                } // TODO: counting files
-            );
         }
     }
 }
@@ -23,12 +23,15 @@
  */
 package cubicchunks.converter.lib.convert.cc2anvil;
 
+import static cubicchunks.converter.lib.util.Utils.newInputStream;
 import static cubicchunks.converter.lib.util.Utils.readCompressedCC;
 import static cubicchunks.converter.lib.util.Utils.writeCompressed;
 
+import com.flowpowered.nbt.ByteArrayTag;
 import com.flowpowered.nbt.ByteTag;
 import com.flowpowered.nbt.CompoundMap;
 import com.flowpowered.nbt.CompoundTag;
+import com.flowpowered.nbt.DoubleTag;
 import com.flowpowered.nbt.IntArrayTag;
 import com.flowpowered.nbt.IntTag;
 import com.flowpowered.nbt.ListTag;
@@ -38,22 +41,72 @@ import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.convert.data.MultilayerAnvilChunkData;
+import cubicchunks.converter.lib.util.UncheckedInterruptedException;
 import cubicchunks.regionlib.impl.MinecraftChunkLocation;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.zip.ZipException;
 
 import javax.annotation.Nullable;
 
 public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColumnData, MultilayerAnvilChunkData> {
 
+    // converts the layers of a column in parallel. Separate from the common pool, and the tasks never block, so a convert
+    // thread waiting for its layers can't starve other columns. Threads time out when no conversion is running
+    private static final ExecutorService LAYER_EXECUTOR = newLayerExecutor();
+
+    // vanilla 1.12 block ids with light opacity 0, these don't count for HeightMap. Modded blocks are assumed opaque
+    private static final boolean[] TRANSPARENT = new boolean[256];
+
+    static {
+        int[] transparentIds = {
+            0, 6, 20, 26, 27, 28, 31, 32, 34, 36, 37, 38, 39, 40, 50, 51, 52, 54, 55, 59, 63, 64, 65, 66, 68, 69, 70,
+            71, 72, 75, 76, 77, 78, 81, 83, 85, 90, 92, 93, 94, 95, 96, 101, 102, 104, 105, 106, 107, 111, 113, 115,
+            116, 117, 118, 119, 120, 122, 127, 130, 131, 132, 138, 139, 140, 141, 142, 143, 144, 145, 146, 147, 148,
+            149, 150, 151, 154, 157, 160, 165, 166, 167, 171, 175, 176, 177, 178, 183, 184, 185, 186, 187, 188, 189,
+            190, 191, 192, 193, 194, 195, 196, 197, 198, 199, 200, 207, 209
+        };
+        for (int id : transparentIds) {
+            TRANSPARENT[id] = true;
+        }
+    }
+
     @Override public Set<MultilayerAnvilChunkData> convert(CubicChunksColumnData input) {
-        Map<Integer, AnvilChunkData> data = new HashMap<>();
+        Set<MultilayerAnvilChunkData> layers = new HashSet<>();
+        convert(input, layers::add);
+        return layers;
+    }
+
+    private static ExecutorService newLayerExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadId = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "Anvil layer converter #" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Converts the world layers of the column in parallel on a dedicated executor. Every layer is passed to {@code out}
+     * on its own as soon as it's converted, in completion order, so the writer can start on it while the rest are still
+     * being converted. {@code out} is only called from the calling thread, as it may block.
+     */
+    @Override public void convert(CubicChunksColumnData input, Consumer<MultilayerAnvilChunkData> out) {
         MinecraftChunkLocation chunkPos = new MinecraftChunkLocation(input.getPosition().getEntryX(), input.getPosition().getEntryZ(), "mca");
 
         // split the data into world layers
@@ -62,23 +115,69 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
             ByteBuffer[] sections = worldLayers.computeIfAbsent(toWorldLayerY(key), y -> new ByteBuffer[16]);
             sections[toLayerSection(key)] = value;
         });
-        // convert each world layer separately
-        worldLayers.forEach((key, value) ->
-            data.put(key, new AnvilChunkData(input.getDimension(), chunkPos, convertWorldLayer(input.getColumnData(), value, key)))
-        );
-        return Collections.singleton(new MultilayerAnvilChunkData(data));
+        // the column is decoded once and only read by the layers
+        CompoundTag columnTag;
+        try {
+            columnTag = input.getColumnData() == null ? null : readCompressedCC(newInputStream(input.getColumnData()));
+        } catch (ZipException e) {
+            e.printStackTrace();
+            return;
+        } catch (IOException e) {
+            throw new Error("ByteArrayInputStream doesn't throw IOException", e);
+        }
+
+        if (worldLayers.size() == 1) {
+            Map.Entry<Integer, ByteBuffer[]> layer = worldLayers.entrySet().iterator().next();
+            emitLayer(input, chunkPos, out, layer.getKey(), convertWorldLayer(columnTag, layer.getValue(), layer.getKey()));
+            return;
+        }
+        CompletionService<Map.Entry<Integer, ByteBuffer>> layers = new ExecutorCompletionService<>(LAYER_EXECUTOR);
+        List<Future<Map.Entry<Integer, ByteBuffer>>> futures = new ArrayList<>(worldLayers.size());
+        for (Map.Entry<Integer, ByteBuffer[]> layer : worldLayers.entrySet()) {
+            futures.add(layers.submit(() -> new AbstractMap.SimpleImmutableEntry<>(layer.getKey(),
+                    convertWorldLayer(columnTag, layer.getValue(), layer.getKey()))));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Map.Entry<Integer, ByteBuffer> layer = layers.take().get();
+                emitLayer(input, chunkPos, out, layer.getKey(), layer.getValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedInterruptedException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
     }
 
-    private ByteBuffer convertWorldLayer(@Nullable ByteBuffer columnData, ByteBuffer[] cubes, int layerIdx) {
+    private static void emitLayer(CubicChunksColumnData input, MinecraftChunkLocation chunkPos, Consumer<MultilayerAnvilChunkData> out,
+            int layerIdx, @Nullable ByteBuffer data) {
+        if (data != null) {
+            AnvilChunkData chunk = new AnvilChunkData(input.getDimension(), chunkPos, data);
+            out.accept(new MultilayerAnvilChunkData(Collections.singletonMap(layerIdx, chunk)));
+        }
+    }
+
+    private ByteBuffer convertWorldLayer(@Nullable CompoundTag columnTag, ByteBuffer[] cubes, int layerIdx) {
         try {
             if (dropChunk(cubes, layerIdx)) {
                 return null;
             }
-            CompoundTag columnTag = columnData == null ? null : readCompressedCC(new ByteArrayInputStream(columnData.array()));
             CompoundTag[] cubeTags = new CompoundTag[cubes.length];
             for (int i = 0; i < cubes.length; i++) {
                 if (cubes[i] != null) {
-                    cubeTags[i] = readCompressedCC(new ByteArrayInputStream(cubes[i].array()));
+                    cubeTags[i] = readCompressedCC(newInputStream(cubes[i]));
                 }
             }
             CompoundTag tag = convertWorldLayer(columnTag, cubeTags, layerIdx);
@@ -223,18 +322,14 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
                         level.put(renamedInt(tag, "zPos"));
                         break;
                     case "OpacityIndex":
-                        level.put(getHeightMap(tag, layerIdx));
+                        // replaced by HeightMap below
                         break;
                     default:
                         level.put(tag);
                 }
             }
         }
-        // TODO: use existing heightmap? Is it safe?
-        int[] heights = new int[256];
-        Arrays.fill(heights, -999);
-        Tag<?> heightsTag = new IntArrayTag("HeightMap", heights);
-        level.put(heightsTag);
+        level.put(new IntArrayTag("HeightMap", computeHeightMap(cubes)));
 
         for (CompoundTag cube : cubes) {
             if (cube != null) {
@@ -257,9 +352,7 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
         level.put(new ByteTag("LightPopulated", (byte) 1)); // can't let vanilla recalculate lighting because 1.14.x drops such chunks :(
 
         level.put(getSections(cubes));
-        level.put(getEntities(cubes));
-        level.put(getTileEntities(cubes));
-        level.put(getTileTicks(cubes));
+        putEntities(level, cubes, layerIdx);
     }
 
     private Tag<?> getSections(CompoundTag[] cubes) {
@@ -283,16 +376,124 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
         return new ListTag<>("Sections", CompoundTag.class, sections);
     }
 
-    private Tag<?> getEntities(CompoundTag[] cubes) {
-        return new ListTag<>("Entities", CompoundTag.class, new ArrayList<>());
+    /**
+     * Merges Entities, TileEntities and TileTicks of all cubes into the layer in one pass, moving them into the 0-255
+     * height range of the layer.
+     */
+    private void putEntities(CompoundMap level, CompoundTag[] cubes, int layerIdx) {
+        int yOffset = -layerIdx * 256;
+        List<CompoundTag> entities = new ArrayList<>();
+        List<CompoundTag> tileEntities = new ArrayList<>();
+        List<CompoundTag> tileTicks = new ArrayList<>();
+        for (CompoundTag cube : cubes) {
+            if (cube == null) {
+                continue;
+            }
+            CompoundMap cubeLevel = (CompoundMap) cube.getValue().get("Level").getValue();
+            for (CompoundTag entity : compoundList(cubeLevel.get("Entities"))) {
+                entities.add(moveEntity(entity, yOffset));
+            }
+            for (CompoundTag tileEntity : compoundList(cubeLevel.get("TileEntities"))) {
+                tileEntities.add(moveIntY(tileEntity, "y", yOffset));
+            }
+            for (CompoundTag tileTick : compoundList(cubeLevel.get("TileTicks"))) {
+                tileTicks.add(moveIntY(tileTick, "y", yOffset));
+            }
+        }
+        level.put(new ListTag<>("Entities", CompoundTag.class, entities));
+        level.put(new ListTag<>("TileEntities", CompoundTag.class, tileEntities));
+        level.put(new ListTag<>("TileTicks", CompoundTag.class, tileTicks));
+    }
+
+    // empty lists are lists of EndTags
+    @SuppressWarnings("unchecked")
+    private static List<CompoundTag> compoundList(@Nullable Tag<?> tag) {
+        if (!(tag instanceof ListTag) || ((ListTag<?>) tag).getElementType() != CompoundTag.class) {
+            return Collections.emptyList();
+        }
+        return ((ListTag<CompoundTag>) tag).getValue();
     }
 
-    private Tag<?> getTileEntities(CompoundTag[] cubes) {
-        return new ListTag<>("TileEntities", CompoundTag.class, new ArrayList<>());
+    @SuppressWarnings("unchecked")
+    private static CompoundTag moveEntity(CompoundTag entity, int yOffset) {
+        if (yOffset == 0) {
+            return entity;
+        }
+        CompoundMap map = new CompoundMap();
+        map.putAll(entity.getValue());
+        Tag<?> pos = map.get("Pos");
+        if (pos instanceof ListTag && ((ListTag<?>) pos).getElementType() == DoubleTag.class) {
+            List<DoubleTag> oldPos = ((ListTag<DoubleTag>) pos).getValue();
+            List<DoubleTag> newPos = new ArrayList<>(oldPos);
+            if (newPos.size() == 3) {
+                newPos.set(1, new DoubleTag("", oldPos.get(1).getValue() + yOffset));
+            }
+            map.put(new ListTag<>("Pos", DoubleTag.class, newPos));
+        }
+        // paintings and item frames
+        if (map.get("TileY") instanceof IntTag) {
+            map.put(new IntTag("TileY", (Integer) map.get("TileY").getValue() + yOffset));
+        }
+        List<CompoundTag> passengers = compoundList(map.get("Passengers"));
+        if (!passengers.isEmpty()) {
+            List<CompoundTag> newPassengers = new ArrayList<>(passengers.size());
+            for (CompoundTag passenger : passengers) {
+                newPassengers.add(moveEntity(passenger, yOffset));
+            }
+            map.put(new ListTag<>("Passengers", CompoundTag.class, newPassengers));
+        }
+        return new CompoundTag(entity.getName(), map);
+    }
+
+    private static CompoundTag moveIntY(CompoundTag tag, String name, int yOffset) {
+        if (yOffset == 0 || !(tag.getValue().get(name) instanceof IntTag)) {
+            return tag;
+        }
+        CompoundMap map = new CompoundMap();
+        map.putAll(tag.getValue());
+        map.put(new IntTag(name, (Integer) map.get(name).getValue() + yOffset));
+        return new CompoundTag(tag.getName(), map);
+    }
+
+    /**
+     * @return for each x/z, one above the highest block in the layer that light can't pass through freely, or 0 if
+     * there is none, like vanilla HeightMap
+     */
+    private static int[] computeHeightMap(CompoundTag[] cubes) {
+        int[] heights = new int[256];
+        int remaining = heights.length;
+        // top down, so that each x/z is done at its highest opaque block
+        for (int sectionY = cubes.length - 1; sectionY >= 0 && remaining > 0; sectionY--) {
+            if (cubes[sectionY] == null) {
+                continue;
+            }
+            CompoundMap cubeLevel = (CompoundMap) cubes[sectionY].getValue().get("Level").getValue();
+            List<CompoundTag> sections = compoundList(cubeLevel.get("Sections"));
+            if (sections.isEmpty()) {
+                continue;
+            }
+            CompoundMap section = sections.get(0).getValue();
+            if (!(section.get("Blocks") instanceof ByteArrayTag)) {
+                continue;
+            }
+            byte[] blocks = ((ByteArrayTag) section.get("Blocks")).getValue();
+            byte[] add = section.get("Add") instanceof ByteArrayTag ? ((ByteArrayTag) section.get("Add")).getValue() : null;
+            for (int y = 15; y >= 0 && remaining > 0; y--) {
+                int base = y << 8;
+                for (int xz = 0; xz < 256; xz++) {
+                    int i = base | xz;
+                    if (heights[xz] == 0 && (!TRANSPARENT[blocks[i] & 0xFF] || (add != null && nibble(add, i) != 0))) {
+                        heights[xz] = sectionY * 16 + y + 1;
+                        remaining--;
+                    }
+                }
+            }
+        }
+        return heights;
     }
 
-    private Tag<?> getTileTicks(CompoundTag[] cubes) {
-        return new ListTag<>("TileTicks", CompoundTag.class, new ArrayList<>());
+    private static int nibble(byte[] array, int i) {
+        return array[i >> 1] >> ((i & 1) << 2) & 0xF;
     }
 
     private Tag<?> getIsPopulated(CompoundTag[] cubes, int layerIdx) {
@@ -309,29 +510,6 @@ public class CC2AnvilDataConverter implements ChunkDataConverter<CubicChunksColu
         return new ByteTag("TerrainPopulated", (byte) 1);
     }
 
-    private Tag<?> getHeightMap(Tag<?> opacityIndex, int layerIdx) {
-        byte[] array = (byte[]) opacityIndex.getValue();
-        int[] output = new int[256];
-        ByteArrayInputStream buf = new ByteArrayInputStream(array);
-        try (DataInputStream in = new DataInputStream(buf)) {
-
-            for (int i = 0; i < output.length; i++) {
-                in.readInt(); // yMin
-                output[i] = (in.readInt() + 1) - (layerIdx * 256);
-                int segmentCount = in.readUnsignedShort();
-                for (int j = 0; j < segmentCount; j++) {
-                    in.readInt();
-                }
-            }
-        } catch (EOFException e) {
-            e.printStackTrace();
-            Arrays.fill(output, -999);
-        } catch (IOException e) {
-            throw new Error("ByteArrayInputStream doesn't throw IOException");
-        }
-        return new IntArrayTag("HeightMap", output);
-    }
-
     private IntTag renamedInt(Tag<?> old, String newName) {
         return new IntTag(newName, (Integer) old.getValue());
     }
@@ -30,6 +30,7 @@ import com.flowpowered.nbt.Tag;
 import com.flowpowered.nbt.stream.NBTInputStream;
 import com.flowpowered.nbt.stream.NBTOutputStream;
 import cubicchunks.converter.lib.Dimensions;
+import cubicchunks.converter.lib.util.FileCopier;
 import cubicchunks.converter.lib.util.Utils;
 import cubicchunks.converter.lib.convert.LevelInfoConverter;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
@@ -43,12 +44,18 @@ public class CC2AnvilLevelInfoConverter implements LevelInfoConverter<CubicChunk
 
     private final Path srcPath;
     private final Path dstPath;
+    private FileCopier copier;
 
     public CC2AnvilLevelInfoConverter(Path srcPath, Path dstPath) {
         this.srcPath = srcPath;
         this.dstPath = dstPath;
     }
 
+    @Override public void startCopy(FileCopier copier) {
+        // there is a copy of the files for every layer, and the layer directories only exist once chunks are written
+        this.copier = copier;
+    }
+
     @Override public void convert() throws IOException {
         Utils.forEachDirectory(dstPath, dir -> {
             CompoundTag root;
@@ -80,15 +87,13 @@ public class CC2AnvilLevelInfoConverter implements LevelInfoConverter<CubicChunk
 
                 nbtOut.writeTag(new CompoundTag(root.getName(), newRoot));
 
-                Utils.copyEverythingExcept(srcPath, srcPath, dir, file ->
+                copier.copyEverythingExcept(srcPath, dir, file ->
                         file.toString().contains("level.dat") || file.toString().endsWith("custom_generator_settings.json")
                                 || file.toString().endsWith("cubicChunksData.dat") || file.toString().endsWith("cubicchunks_spawncubes.dat") ||
                             Dimensions.getDimensions().stream().anyMatch(dim ->
                                 srcPath.resolve(dim.getDirectory()).resolve("region2d").equals(file)
                                     || srcPath.resolve(dim.getDirectory()).resolve("region3d").equals(file)
-                            ),
-                    f -> {
-                    } // TODO: counting files
+                            )
                 );
             }
         });
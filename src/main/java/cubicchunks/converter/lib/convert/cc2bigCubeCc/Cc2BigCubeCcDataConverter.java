@@ -58,19 +58,15 @@ public class Cc2BigCubeCcDataConverter  implements ChunkDataConverter<CubicChunk
         if (input.getColumnData() != null && input.getCubeData() == null) {
             return Collections.singleton(new CubicChunksProtoBigCubeData(input.getDimension(), input.getPosition(), input.getColumnData(), null));
         }
-        ByteBuffer prepend = this.prepend.duplicate();
-        int totalSize = prepend.capacity();
-        for (ByteBuffer cube : input.getCubeData()) {
-            totalSize += cube.capacity();
-        }
-        ByteBuffer buf = ByteBuffer.wrap(new byte[totalSize]);
-        prepend.clear();
-        buf.put(prepend);
-        for (ByteBuffer cube : input.getCubeData()) {
+        // each cube is already a complete gzip stream, so they are written after the prefix as they are
+        ByteBuffer[] cubes = input.getCubeData();
+        ByteBuffer[] parts = new ByteBuffer[cubes.length + 1];
+        parts[0] = prepend.duplicate();
+        for (int i = 0; i < cubes.length; i++) {
+            ByteBuffer cube = cubes[i].duplicate();
             cube.clear();
-            buf.put(cube);
+            parts[i + 1] = cube;
         }
-        buf.clear();
-        return Collections.singleton(new CubicChunksProtoBigCubeData(input.getDimension(), input.getPosition(), null, buf));
+        return Collections.singleton(new CubicChunksProtoBigCubeData(input.getDimension(), input.getPosition(), null, parts));
     }
 }
@@ -33,6 +33,7 @@ import cubicchunks.converter.lib.Dimensions;
 import cubicchunks.converter.lib.convert.LevelInfoConverter;
 import cubicchunks.converter.lib.convert.data.CubicChunksBigCube112Data;
 import cubicchunks.converter.lib.convert.data.CubicChunksProtoBigCubeData;
+import cubicchunks.converter.lib.util.FileCopier;
 import cubicchunks.converter.lib.util.Utils;
 
 import java.io.IOException;
@@ -49,6 +50,16 @@ public class Cc2BigCubeCcLevelInfoConverter implements LevelInfoConverter<CubicC
         this.dstDir = dstDir;
     }
 
+    @Override public void startCopy(FileCopier copier) throws IOException {
+        copier.copyEverythingExcept(srcDir, dstDir, file ->
+                file.toString().contains("level.dat") || file.toString().contains("cubicChunksData.dat") ||
+                        Dimensions.getDimensions().stream().anyMatch(dim ->
+                                srcDir.resolve(dim.getDirectory()).resolve("region2d").equals(file)
+                                        || srcDir.resolve(dim.getDirectory()).resolve("region3d").equals(file)
+                        )
+        );
+    }
+
     @Override public void convert() throws IOException {
         Utils.createDirectories(dstDir);
         CompoundTag root;
@@ -84,16 +95,6 @@ public class Cc2BigCubeCcLevelInfoConverter implements LevelInfoConverter<CubicC
             Files.createDirectories(dstDir);
 
             nbtOut.writeTag(new CompoundTag(root.getName(), newRoot));
-
-            Utils.copyEverythingExcept(srcDir, srcDir, dstDir, file ->
-                            file.toString().contains("level.dat") || file.toString().contains("cubicChunksData.dat") ||
-                                    Dimensions.getDimensions().stream().anyMatch(dim ->
-                                            srcDir.resolve(dim.getDirectory()).resolve("region2d").equals(file)
-                                                    || srcDir.resolve(dim.getDirectory()).resolve("region3d").equals(file)
-                                    ),
-                    f -> {
-                    } // TODO: counting files
-            );
         }
     }
 }
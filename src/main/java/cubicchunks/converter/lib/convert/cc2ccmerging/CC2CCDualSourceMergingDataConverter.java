@@ -23,55 +23,104 @@
  */
 package cubicchunks.converter.lib.convert.cc2ccmerging;
 
+import com.carrotsearch.hppc.LongObjectHashMap;
 import cubicchunks.converter.lib.conf.ConverterConfig;
 import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.convert.data.DualSourceCubicChunksColumnData;
 import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.Vector3i;
 import cubicchunks.converter.lib.util.edittask.EditTask;
 
 import java.nio.ByteBuffer;
 import java.util.*;
 
 public class CC2CCDualSourceMergingDataConverter implements ChunkDataConverter<DualSourceCubicChunksColumnData, CubicChunksColumnData> {
-    private final List<EditTask> relocateTasks;
+
+    // boxes covering more columns than this aren't indexed by column, but checked for every column
+    private static final long MAX_INDEXED_BOX_COLUMNS = 1 << 16;
+    private static final int[] NO_RANGES = new int[0];
+
+    // y ranges of the source boxes of all the tasks containing each column, as min, max pairs.
+    // A cube is copied if any of them contains it
+    private final LongObjectHashMap<int[]> columnYRanges = new LongObjectHashMap<>();
+    private final List<BoundingBox> largeSrcBoxes = new ArrayList<>();
 
     @SuppressWarnings("unchecked")
     public CC2CCDualSourceMergingDataConverter(ConverterConfig config) {
-        relocateTasks = (List<EditTask>) config.getValue("relocations");
+        List<EditTask> relocateTasks = (List<EditTask>) config.getValue("relocations");
+        for (EditTask task : relocateTasks) {
+            for (BoundingBox box : task.getSrcBoxes()) {
+                addSrcBox(box);
+            }
+        }
     }
 
-    @Override public Set<CubicChunksColumnData> convert(DualSourceCubicChunksColumnData input) {
-        Map<Integer, ByteBuffer> priorityCubes = input.getPriorityCubeData();
-        Map<Integer, ByteBuffer> fallbackCubes = input.getFallbackCubeData();
-        Map<Integer, ByteBuffer> inCubes = new HashMap<>();
+    private void addSrcBox(BoundingBox box) {
+        Vector3i min = box.getMinPos();
+        Vector3i max = box.getMaxPos();
+        long columns = ((long) max.getX() - min.getX() + 1) * ((long) max.getZ() - min.getZ() + 1);
+        if (columns > MAX_INDEXED_BOX_COLUMNS) {
+            largeSrcBoxes.add(box);
+            return;
+        }
+        for (int x = min.getX(); x <= max.getX(); x++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                long key = packColumn(x, z);
+                int[] ranges = columnYRanges.getOrDefault(key, NO_RANGES);
+                ranges = Arrays.copyOf(ranges, ranges.length + 2);
+                ranges[ranges.length - 2] = min.getY();
+                ranges[ranges.length - 1] = max.getY();
+                columnYRanges.put(key, ranges);
+            }
+        }
+    }
+
+    private static long packColumn(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
 
-        if(priorityCubes != null)
-            priorityCubes.forEach(inCubes::put);
-        fallbackCubes.forEach((y, cube) -> {
-            if(!inCubes.containsKey(y))
-                inCubes.put(y, cube);
-        });
+    @Override public Set<CubicChunksColumnData> convert(DualSourceCubicChunksColumnData input) {
+        int x = input.getPosition().getEntryX();
+        int z = input.getPosition().getEntryZ();
+        int[] yRanges = columnYRanges.getOrDefault(packColumn(x, z), NO_RANGES);
+        int rangeCount = yRanges.length;
+        if (!largeSrcBoxes.isEmpty()) {
+            yRanges = Arrays.copyOf(yRanges, rangeCount + largeSrcBoxes.size() * 2);
+            for (BoundingBox box : largeSrcBoxes) {
+                if (box.columnIntersects(x, z)) {
+                    yRanges[rangeCount++] = box.getMinPos().getY();
+                    yRanges[rangeCount++] = box.getMaxPos().getY();
+                }
+            }
+        }
 
         Map<Integer, ByteBuffer> outCubes = new HashMap<>();
-        inCubes.forEach((y, cube) -> {
-            for (EditTask relocateTask : relocateTasks) {
-                List<BoundingBox> srcBoxes = relocateTask.getSrcBoxes();
-                boolean foundIntersect = false;
-                for (BoundingBox box : srcBoxes) {
-                    if (box.intersects(input.getPosition().getEntryX(), y, input.getPosition().getEntryZ())) {
-                        outCubes.put(y, cube);
-                        foundIntersect = true;
-                        break;
+        if (rangeCount != 0) {
+            Map<Integer, ByteBuffer> priorityCubes = input.getPriorityCubeData();
+            if (priorityCubes != null) {
+                for (Map.Entry<Integer, ByteBuffer> entry : priorityCubes.entrySet()) {
+                    if (entry.getValue() != null && inRanges(yRanges, rangeCount, entry.getKey())) {
+                        outCubes.put(entry.getKey(), entry.getValue());
                     }
                 }
-                if(foundIntersect)
-                    break;
             }
-        });
+            for (Map.Entry<Integer, ByteBuffer> entry : input.getFallbackCubeData().entrySet()) {
+                if (entry.getValue() != null && inRanges(yRanges, rangeCount, entry.getKey())) {
+                    outCubes.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        return Collections.singleton(new CubicChunksColumnData(input.getDimension(), input.getPosition(), input.getColumnData(), outCubes));
+    }
 
-        Set<CubicChunksColumnData> columnData = new HashSet<>();
-        columnData.add(new CubicChunksColumnData(input.getDimension(), input.getPosition(), input.getColumnData(), outCubes));
-        return columnData;
+    private static boolean inRanges(int[] yRanges, int rangeCount, int y) {
+        for (int i = 0; i < rangeCount; i += 2) {
+            if (y >= yRanges[i] && y <= yRanges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
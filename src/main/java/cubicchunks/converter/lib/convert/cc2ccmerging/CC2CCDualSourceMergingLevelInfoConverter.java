@@ -27,44 +27,35 @@ import cubicchunks.converter.lib.Dimensions;
 import cubicchunks.converter.lib.convert.LevelInfoConverter;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.convert.data.DualSourceCubicChunksColumnData;
+import cubicchunks.converter.lib.util.FileCopier;
 import cubicchunks.converter.lib.util.Utils;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
+/**
+ * Copies the level info and other non-chunk files of the priority world. The fallback world only contributes chunks.
+ */
 public class CC2CCDualSourceMergingLevelInfoConverter implements LevelInfoConverter<DualSourceCubicChunksColumnData, CubicChunksColumnData> {
 
-    private final Path prioritySrcDir;
-    private final Path fallbackSrcDir;
+    private final Path srcDir;
     private final Path dstDir;
 
-    public CC2CCDualSourceMergingLevelInfoConverter(Path prioritySrcDir, Path fallbackSrcDir, Path dstDir) {
-        this.prioritySrcDir = prioritySrcDir;
-        this.fallbackSrcDir = fallbackSrcDir;
+    public CC2CCDualSourceMergingLevelInfoConverter(Path srcDir, Path dstDir) {
+        this.srcDir = srcDir;
         this.dstDir = dstDir;
     }
 
+    @Override public void startCopy(FileCopier copier) throws IOException {
+        copier.copyEverythingExcept(srcDir, dstDir, file ->
+            Dimensions.getDimensions().stream().anyMatch(dim ->
+                srcDir.resolve(dim.getDirectory()).resolve("region2d").equals(file) ||
+                    srcDir.resolve(dim.getDirectory()).resolve("region3d").equals(file)
+            )
+        );
+    }
+
     @Override public void convert() throws IOException {
         Utils.createDirectories(dstDir);
-        if(Files.exists(prioritySrcDir)) {
-            Utils.copyEverythingExcept(prioritySrcDir, prioritySrcDir, dstDir, file ->
-                    Dimensions.getDimensions().stream().anyMatch(dim ->
-                        prioritySrcDir.resolve(dim.getDirectory()).resolve("region2d").equals(file) ||
-                            prioritySrcDir.resolve(dim.getDirectory()).resolve("region3d").equals(file)
-                    ),
-                f -> {
-                } // TODO: counting files
-            );
-        } else {
-            Utils.copyEverythingExcept(fallbackSrcDir, fallbackSrcDir, dstDir, file ->
-                    Dimensions.getDimensions().stream().anyMatch(dim ->
-                        fallbackSrcDir.resolve(dim.getDirectory()).resolve("region2d").equals(file) ||
-                            fallbackSrcDir.resolve(dim.getDirectory()).resolve("region3d").equals(file)
-                    ),
-                f -> {
-                } // TODO: counting files
-            );
-        }
     }
 }
@@ -36,16 +36,19 @@ import cubicchunks.regionlib.impl.EntryLocation2D;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 
+import static cubicchunks.converter.lib.util.Utils.newInputStream;
 import static cubicchunks.converter.lib.util.Utils.readCompressedCC;
 import static cubicchunks.converter.lib.util.Utils.writeCompressed;
 
@@ -53,6 +56,8 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
 
     private final List<EditTask> relocateTasks;
     private final EditTaskContext.EditTaskConfig config;
+    private final Map<EditTask, String> taskLabels;
+    @Nullable private final IncrementalRelocation incremental;
 
     private static final Logger LOGGER = Logger.getLogger(CC2CCRelocatingDataConverter.class.getSimpleName());
 
@@ -60,12 +65,35 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
     public CC2CCRelocatingDataConverter(ConverterConfig config) {
         this.relocateTasks = (List<EditTask>) config.getValue("relocations");
         this.config = new EditTaskContext.EditTaskConfig();
+
+        Map<EditTask, String> sources = config.hasValue("relocationSources") ?
+                (Map<EditTask, String>) config.getValue("relocationSources") : Collections.emptyMap();
+        this.taskLabels = new IdentityHashMap<>();
+        for (int i = 0; i < relocateTasks.size(); i++) {
+            EditTask task = relocateTasks.get(i);
+            String source = sources.get(task);
+            this.taskLabels.put(task, source != null ? source : "#" + (i + 1) + " " + task.getClass().getSimpleName());
+        }
+        this.incremental = config.hasValue(IncrementalRelocation.CONFIG_KEY) ?
+                (IncrementalRelocation) config.getValue(IncrementalRelocation.CONFIG_KEY) : null;
+    }
+
+    @Override public void start() throws IOException {
+        if (incremental != null) {
+            incremental.prepare();
+        }
     }
 
     public static ConverterConfig loadConfig(Consumer<Throwable> throwableConsumer) {
         ConverterConfig conf = new ConverterConfig(new HashMap<>());
         try {
-            conf.set("relocations", loadDataFromFile("relocatingConfig.txt"));
+            EditTaskContext context = loadDataFromFile("relocatingConfig.txt");
+            conf.set("relocations", context.getTasks());
+            conf.set("relocationSources", context.getTaskSources());
+            String fingerprint = fingerprint(context);
+            conf.set("relocationFingerprint", fingerprint);
+            // shared by the reader and the converter, prepared when the conversion starts
+            conf.set(IncrementalRelocation.CONFIG_KEY, new IncrementalRelocation(conf, context.getTasks(), fingerprint));
         } catch (IOException | RuntimeException e) {
             throwableConsumer.accept(e);
             return null;
@@ -73,18 +101,39 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
         return conf;
     }
 
-    private static List<EditTask> loadDataFromFile(String filename) throws IOException {
+    private static EditTaskContext loadDataFromFile(String filename) throws IOException {
         List<String> lines = Files.readAllLines(Paths.get(filename));
 
         EditTaskContext context = new EditTaskContext();
-        for(String line : lines) {
-            line = line.trim();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
             if(line.isEmpty() || line.startsWith("//") || line.startsWith("#")) continue;
 
+            context.setCurrentSource("line " + (i + 1) + ": " + line);
             EditTaskCommands.handleCommand(context, line);
         }
+        context.setCurrentSource(null);
+
+        return context;
+    }
 
-        return context.getTasks();
+    private static String fingerprint(EditTaskContext context) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (EditTask task : context.getTasks()) {
+                String source = context.getTaskSources().get(task);
+                // ignore line numbers, so that adding comments doesn't change the fingerprint
+                digest.update(source.substring(source.indexOf(": ") + 2).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
     }
 
     @Override public Set<PriorityCubicChunksColumnData> convert(PriorityCubicChunksColumnData input) {
@@ -123,7 +172,7 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
         Map<Integer, ImmutablePair<Long, CompoundTag>> inCubeData = new HashMap<>();
         cubes.forEach((key, value) -> {
             try {
-                inCubeData.put(key, new ImmutablePair<>(value.getKey(), readCompressedCC(new ByteArrayInputStream(value.getValue().array()))));
+                inCubeData.put(key, new ImmutablePair<>(value.getKey(), readCompressedCC(newInputStream(value.getValue()))));
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -135,7 +184,7 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
             if (data != null && data.getValue() != null) {
                 inColumnData = new ImmutablePair<>(
                         data.getKey(),
-                        readCompressedCC(new ByteArrayInputStream(data.getValue().array()))
+                        readCompressedCC(newInputStream(data.getValue()))
                 );
             } else {
                 inColumnData = null;
@@ -174,6 +223,13 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
                 noReadCubes.forEach((yPos, buffer) -> currentColumnData.getCubeData().putIfAbsent(yPos, buffer));
                 columnData.add(currentColumnData);
             }
+            if (incremental != null) {
+                // the rest is linked from the previous output
+                String dim = input.getDimension().getDirectory();
+                columnData.removeIf(column -> !incremental.isOutputDirty(dim,
+                        IncrementalRelocation.areaOfCube(column.getPosition().getEntryX()),
+                        IncrementalRelocation.areaOfCube(column.getPosition().getEntryZ())));
+            }
             return columnData;
 
         } catch (IOException e) {
@@ -218,8 +274,13 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
                 if(!cubeIsSrc)
                     continue;
 
+                long startAllocated = EditTaskStats.currentThreadAllocatedBytes();
+                long start = System.nanoTime();
                 List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> outputCubes =
                         task.actOnCube(new Vector3i(cubeX, cubeY, cubeZ), config, entry.getValue().getValue(), entry.getKey());
+                long time = System.nanoTime() - start;
+                long allocated = EditTaskStats.currentThreadAllocatedBytes() - startAllocated;
+                PipelineMetrics.get().editTask(taskLabels.get(task)).recordCube(countOutputs(outputCubes), time, allocated);
 
                 outputCubes.forEach(positionTagPriority -> {
                     Vector3i cubePos = positionTagPriority.getKey();
@@ -267,8 +328,13 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
             if (!cubeIsSrc)
                 continue;
 
+            long startAllocated = EditTaskStats.currentThreadAllocatedBytes();
+            long start = System.nanoTime();
             List<ImmutablePair<Vector2i, ImmutablePair<Long, CompoundTag>>> outputColumns =
                     task.actOnColumn(new Vector2i(columnX, columnZ), config, columnData.getValue(), columnData.getKey());
+            long time = System.nanoTime() - start;
+            long allocated = EditTaskStats.currentThreadAllocatedBytes() - startAllocated;
+            PipelineMetrics.get().editTask(taskLabels.get(task)).recordColumn(countOutputs(outputColumns), time, allocated);
 
             outputColumns.forEach(positionTagPriority -> {
                 Vector2i columnPos = positionTagPriority.getKey();
@@ -281,4 +347,17 @@ public class CC2CCRelocatingDataConverter implements ChunkDataConverter<Priority
         }
         return tagMap;
     }
+
+    /**
+     * @return number of outputs that contain data, entries with null tag are deletions
+     */
+    private static int countOutputs(List<? extends ImmutablePair<?, ImmutablePair<Long, CompoundTag>>> outputs) {
+        int count = 0;
+        for (ImmutablePair<?, ImmutablePair<Long, CompoundTag>> output : outputs) {
+            if (output.getValue().getValue() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
@@ -26,9 +26,11 @@ package cubicchunks.converter.lib.convert.cc2ccrelocating;
 import cubicchunks.converter.lib.Dimensions;
 import cubicchunks.converter.lib.convert.LevelInfoConverter;
 import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
+import cubicchunks.converter.lib.util.FileCopier;
 import cubicchunks.converter.lib.util.Utils;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class CC2CCRelocatingLevelInfoConverter implements LevelInfoConverter<PriorityCubicChunksColumnData, PriorityCubicChunksColumnData> {
@@ -41,15 +43,30 @@ public class CC2CCRelocatingLevelInfoConverter implements LevelInfoConverter<Pri
         this.dstDir = dstDir;
     }
 
+    @Override public void startCopy(FileCopier copier) throws IOException {
+        copier.copyEverythingExcept(srcDir, dstDir, file ->
+                Dimensions.getDimensions().stream().anyMatch(dim ->
+                        srcDir.resolve(dim.getDirectory()).resolve("region2d").equals(file) ||
+                                srcDir.resolve(dim.getDirectory()).resolve("region3d").equals(file)
+                ) || isUnchangedCopy(file) || RelocationManifest.isOwnFile(RelocationManifest.toRelativeName(srcDir, file))
+        );
+    }
+
     @Override public void convert() throws IOException {
         Utils.createDirectories(dstDir);
-        Utils.copyEverythingExcept(srcDir, srcDir, dstDir, file ->
-                        Dimensions.getDimensions().stream().anyMatch(dim ->
-                                srcDir.resolve(dim.getDirectory()).resolve("region2d").equals(file) ||
-                                        srcDir.resolve(dim.getDirectory()).resolve("region3d").equals(file)
-                        ),
-                f -> {
-                } // TODO: counting files
-        );
+        RelocationManifest.commitPending(dstDir);
+    }
+
+    // files linked from the previous output by incremental relocation, or left by an interrupted run
+    private boolean isUnchangedCopy(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        Path dstFile = dstDir.resolve(srcDir.relativize(file));
+        try {
+            return Files.exists(dstFile) && RelocationManifest.FileState.of(file).equals(RelocationManifest.FileState.of(dstFile));
+        } catch (IOException e) {
+            return false;
+        }
     }
 }
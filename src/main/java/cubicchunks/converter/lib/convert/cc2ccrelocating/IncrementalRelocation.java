@@ -0,0 +1,367 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.cc2ccrelocating;
+
+import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.Dimensions;
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.Utils;
+import cubicchunks.converter.lib.util.Vector3i;
+import cubicchunks.converter.lib.util.edittask.EditTask;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+/**
+ * Relocates only the parts of the world that changed since a previous relocation with the same config.
+ * <p>
+ * The unit of work is the area of a single region2d file (32x32 columns, all cubes in them). An area is dirty if a
+ * region file in it changed, or if a task copies data into it from a dirty area. Only dirty areas are written, and
+ * everything the tasks read to produce them is read again. Region files of the previous output outside of dirty areas
+ * are hard linked into the destination.
+ * <p>
+ * The plan is created together with the config, before the reader and converter, and shared by both. Nothing is known
+ * about the worlds until {@link #prepare()} is called when the conversion starts.
+ */
+public class IncrementalRelocation {
+
+    public static final String CONFIG_KEY = "incrementalRelocation";
+    // size of a region2d file in cubes, y doesn't matter
+    private static final Vector3i AREA_SIZE = new Vector3i(32, 1, 32);
+
+    private final ConverterConfig config;
+    private final List<EditTask> tasks;
+    @Nullable private final String configFingerprint;
+
+    private volatile boolean prepared;
+    // dimension directory -> boxes in area coordinates, null if everything is relocated
+    @Nullable private volatile Map<String, List<BoundingBox>> dirtyAreas;
+    @Nullable private volatile Map<String, List<BoundingBox>> neededAreas;
+
+    public IncrementalRelocation(ConverterConfig config, List<EditTask> tasks, @Nullable String configFingerprint) {
+        this.config = config;
+        this.tasks = tasks;
+        this.configFingerprint = configFingerprint;
+    }
+
+    // a prepared plan, for tests
+    IncrementalRelocation(List<EditTask> tasks, Map<String, List<BoundingBox>> dirtyAreas, Map<String, List<BoundingBox>> neededAreas) {
+        this(new ConverterConfig(new HashMap<>()), tasks, null);
+        this.dirtyAreas = dirtyAreas;
+        this.neededAreas = neededAreas;
+        this.prepared = true;
+    }
+
+    /**
+     * Writes the manifest of this run and, if the config contains a previous relocation output with a matching manifest,
+     * links its unchanged regions into the destination and deletes the ones that will be written again. Must be called
+     * once the conversion actually starts, before any chunks are counted or read.
+     */
+    public void prepare() throws IOException {
+        if (prepared) {
+            throw new IllegalStateException("Incremental relocation already prepared");
+        }
+        if (!config.hasValue("srcWorld") || !config.hasValue("dstWorld")) {
+            prepared = true;
+            return;
+        }
+        Path srcWorld = (Path) config.getValue("srcWorld");
+        Path dstWorld = (Path) config.getValue("dstWorld");
+        RelocationManifest current = RelocationManifest.scan(srcWorld, configFingerprint);
+        current.writePending(dstWorld);
+        try {
+            prepareIncremental(srcWorld, dstWorld, current);
+        } finally {
+            prepared = true;
+        }
+    }
+
+    private void prepareIncremental(Path srcWorld, Path dstWorld, RelocationManifest current) throws IOException {
+        if (!config.hasValue("previousWorld")) {
+            return;
+        }
+        Path previousWorld = (Path) config.getValue("previousWorld");
+        RelocationManifest previous = RelocationManifest.read(previousWorld);
+        if (previous == null) {
+            System.out.println("No relocation manifest in " + previousWorld + ", relocating everything");
+            return;
+        }
+        if (configFingerprint == null || !configFingerprint.equals(previous.getConfigFingerprint())) {
+            System.out.println("Relocation config changed since the previous run, relocating everything");
+            return;
+        }
+
+        Map<String, List<BoundingBox>> changedAreas = new HashMap<>();
+        Set<String> changedFiles = current.changedFiles(previous);
+        for (String name : changedFiles) {
+            RegionFile region = RegionFile.parse(name);
+            if (region != null) {
+                changedAreas.computeIfAbsent(region.dimension, d -> new ArrayList<>()).add(region.areaBox());
+            }
+        }
+
+        Map<String, List<BoundingBox>> dirty = dirtyAreas(changedAreas, tasks);
+        Map<String, List<BoundingBox>> needed = copyOf(dirty);
+        forEachTaskDimension(tasks, (task, dim) -> {
+            if (intersectsAny(areaBoxes(task.getDstBoxes()), dirty.get(dim))) {
+                needed.computeIfAbsent(dim, d -> new ArrayList<>()).addAll(areaBoxes(task.getSrcBoxes()));
+            }
+        });
+        dirtyAreas = dirty;
+        neededAreas = needed;
+        int linked = linkUnchanged(previousWorld, srcWorld, dstWorld, current);
+        System.out.println("Incremental relocation: " + changedFiles.size() + " changed files, "
+                + linked + " unchanged files linked from " + previousWorld);
+    }
+
+    /**
+     * @return the changed areas, and all areas tasks copy into from dirty areas, directly or through other tasks
+     */
+    static Map<String, List<BoundingBox>> dirtyAreas(Map<String, List<BoundingBox>> changedAreas, List<EditTask> tasks) {
+        Map<String, List<BoundingBox>> dirtyAreas = copyOf(changedAreas);
+        // a task can copy from an area another task copies into, so keep going until nothing new becomes dirty
+        List<TaskDimension> notDirtied = new ArrayList<>();
+        forEachTaskDimension(tasks, (task, dim) -> notDirtied.add(new TaskDimension(task, dim)));
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Iterator<TaskDimension> it = notDirtied.iterator(); it.hasNext(); ) {
+                TaskDimension entry = it.next();
+                if (intersectsAny(areaBoxes(entry.task.getSrcBoxes()), dirtyAreas.get(entry.dimension))) {
+                    dirtyAreas.computeIfAbsent(entry.dimension, d -> new ArrayList<>()).addAll(areaBoxes(entry.task.getDstBoxes()));
+                    it.remove();
+                    changed = true;
+                }
+            }
+        }
+        return dirtyAreas;
+    }
+
+    /**
+     * @return true if cubes in the given area have to be read
+     */
+    public boolean isInputNeeded(String dimension, int areaX, int areaZ) {
+        checkPrepared();
+        Map<String, List<BoundingBox>> areas = neededAreas;
+        return areas == null || intersects(areas.get(dimension), areaX, areaZ);
+    }
+
+    /**
+     * @return true if cubes in the given area have to be written
+     */
+    public boolean isOutputDirty(String dimension, int areaX, int areaZ) {
+        checkPrepared();
+        return isDirty(dimension, areaX, areaZ);
+    }
+
+    private boolean isDirty(String dimension, int areaX, int areaZ) {
+        Map<String, List<BoundingBox>> areas = dirtyAreas;
+        return areas == null || intersects(areas.get(dimension), areaX, areaZ);
+    }
+
+    private void checkPrepared() {
+        if (!prepared) {
+            throw new IllegalStateException("Incremental relocation is prepared when the conversion starts");
+        }
+    }
+
+    public static int areaOfCube(int cubeCoord) {
+        return cubeCoord >> 5;
+    }
+
+    int linkUnchanged(Path previousWorld, Path srcWorld, Path dstWorld, RelocationManifest current) throws IOException {
+        int linked = 0;
+        boolean inPlace = Files.exists(dstWorld) && Files.isSameFile(previousWorld, dstWorld);
+        if (!inPlace) {
+            for (Path file : listFiles(previousWorld)) {
+                String name = RelocationManifest.toRelativeName(previousWorld, file);
+                if (RelocationManifest.isOwnFile(name)) {
+                    continue;
+                }
+                RegionFile region = RegionFile.parse(name);
+                if (region != null ? isDirty(region.dimension, region.areaX, region.areaZ) : !isUnchangedCopy(file, current.getFile(name))) {
+                    continue;
+                }
+                link(file, dstWorld.resolve(previousWorld.relativize(file)));
+                linked++;
+            }
+        }
+        // anything left in dirty areas would be merged with the new data by the writer
+        for (Path file : listFiles(dstWorld)) {
+            RegionFile region = RegionFile.parse(RelocationManifest.toRelativeName(dstWorld, file));
+            if (region != null && isDirty(region.dimension, region.areaX, region.areaZ)) {
+                Files.delete(file);
+            }
+        }
+        return linked;
+    }
+
+    private static boolean isUnchangedCopy(Path file, @Nullable RelocationManifest.FileState srcState) throws IOException {
+        return srcState != null && RelocationManifest.FileState.of(file).equals(srcState);
+    }
+
+    private static void link(Path existing, Path link) throws IOException {
+        Utils.createDirectories(link.getParent());
+        Files.deleteIfExists(link);
+        try {
+            Files.createLink(link, existing);
+        } catch (IOException | UnsupportedOperationException e) {
+            // different file systems, or links not supported
+            Files.copy(existing, link, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private static List<Path> listFiles(Path world) throws IOException {
+        if (!Files.exists(world)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> stream = Files.walk(world)) {
+            return stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private static void forEachTaskDimension(List<EditTask> tasks, TaskDimensionConsumer consumer) {
+        for (EditTask task : tasks) {
+            for (Dimension dimension : Dimensions.getDimensions()) {
+                if (task.handlesDimension(dimension.getDirectory())) {
+                    consumer.accept(task, dimension.getDirectory());
+                }
+            }
+        }
+    }
+
+    private static List<BoundingBox> areaBoxes(List<BoundingBox> cubeBoxes) {
+        List<BoundingBox> boxes = new ArrayList<>(cubeBoxes.size());
+        for (BoundingBox box : cubeBoxes) {
+            boxes.add(box.asRegionCoords(AREA_SIZE));
+        }
+        return boxes;
+    }
+
+    private static boolean intersectsAny(List<BoundingBox> boxes, @Nullable List<BoundingBox> others) {
+        if (others == null) {
+            return false;
+        }
+        for (BoundingBox box : boxes) {
+            for (BoundingBox other : others) {
+                if (box.columnIntersects(other)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean intersects(@Nullable List<BoundingBox> boxes, int areaX, int areaZ) {
+        if (boxes == null) {
+            return false;
+        }
+        for (BoundingBox box : boxes) {
+            if (box.columnIntersects(areaX, areaZ)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, List<BoundingBox>> copyOf(Map<String, List<BoundingBox>> map) {
+        Map<String, List<BoundingBox>> copy = new HashMap<>();
+        map.forEach((dim, boxes) -> copy.put(dim, new ArrayList<>(boxes)));
+        return copy;
+    }
+
+    @FunctionalInterface
+    private interface TaskDimensionConsumer {
+        void accept(EditTask task, String dimension);
+    }
+
+    private static class TaskDimension {
+        final EditTask task;
+        final String dimension;
+
+        TaskDimension(EditTask task, String dimension) {
+            this.task = task;
+            this.dimension = dimension;
+        }
+    }
+
+    /**
+     * A region2d or region3d file (or its .ext file) of some dimension.
+     */
+    static class RegionFile {
+        final String dimension;
+        final int areaX;
+        final int areaZ;
+
+        private RegionFile(String dimension, int areaX, int areaZ) {
+            this.dimension = dimension;
+            this.areaX = areaX;
+            this.areaZ = areaZ;
+        }
+
+        BoundingBox areaBox() {
+            return new BoundingBox(areaX, 0, areaZ, areaX, 0, areaZ);
+        }
+
+        @Nullable static RegionFile parse(String relativeName) {
+            String[] path = relativeName.split("/");
+            if (path.length < 2) {
+                return null;
+            }
+            String directory = path[path.length - 2];
+            boolean is3d = directory.equals("region3d");
+            if (!is3d && !directory.equals("region2d")) {
+                return null;
+            }
+            String dimension = String.join("/", Arrays.asList(path).subList(0, path.length - 2));
+            String[] coords = path[path.length - 1].split("\\.");
+            try {
+                if (is3d && coords.length >= 3) {
+                    // region3d files are 16x16x16 cubes
+                    return new RegionFile(dimension, Integer.parseInt(coords[0]) >> 1, Integer.parseInt(coords[2]) >> 1);
+                } else if (!is3d && coords.length >= 2) {
+                    return new RegionFile(dimension, Integer.parseInt(coords[0]), Integer.parseInt(coords[1]));
+                }
+            } catch (NumberFormatException e) {
+                // not a region file
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.cc2ccrelocating;
+
+import cubicchunks.converter.lib.convert.ConversionJournal;
+import cubicchunks.converter.lib.util.Utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+/**
+ * Size and modification time of every file of a relocation source world, together with a fingerprint of the relocation
+ * config. Written to the destination world after each relocation, so that the next run can find out what changed.
+ */
+public class RelocationManifest {
+
+    public static final String FILE_NAME = "relocation-manifest.txt";
+    private static final String PENDING_FILE_NAME = FILE_NAME + ".pending";
+
+    @Nullable private final String configFingerprint;
+    private final Map<String, FileState> files;
+
+    private RelocationManifest(@Nullable String configFingerprint, Map<String, FileState> files) {
+        this.configFingerprint = configFingerprint;
+        this.files = files;
+    }
+
+    public static RelocationManifest scan(Path world, @Nullable String configFingerprint) throws IOException {
+        Map<String, FileState> files = new HashMap<>();
+        try (Stream<Path> stream = Files.walk(world)) {
+            for (Path file : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                String relative = toRelativeName(world, file);
+                if (isOwnFile(relative)) {
+                    continue;
+                }
+                files.put(relative, FileState.of(file));
+            }
+        }
+        return new RelocationManifest(configFingerprint, files);
+    }
+
+    /**
+     * @return the manifest of the given world, or null if the world wasn't created by a relocation
+     */
+    @Nullable public static RelocationManifest read(Path world) throws IOException {
+        Path file = world.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).startsWith("config ")) {
+            return null;
+        }
+        String fingerprint = lines.get(0).substring("config ".length());
+        Map<String, FileState> files = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] parts = line.split("\t", 3);
+            if (parts.length != 3) {
+                continue;
+            }
+            files.put(parts[2], new FileState(Long.parseLong(parts[0]), Long.parseLong(parts[1])));
+        }
+        return new RelocationManifest(fingerprint.equals("-") ? null : fingerprint, files);
+    }
+
+    /**
+     * Writes the manifest next to the destination world data. It only replaces the manifest of the previous run in
+     * {@link #commitPending(Path)}, when the relocation succeeded.
+     */
+    public void writePending(Path world) throws IOException {
+        Utils.createDirectories(world);
+        try (BufferedWriter out = Files.newBufferedWriter(world.resolve(PENDING_FILE_NAME), StandardCharsets.UTF_8)) {
+            out.write("config " + (configFingerprint == null ? "-" : configFingerprint));
+            out.newLine();
+            for (Map.Entry<String, FileState> entry : files.entrySet()) {
+                out.write(entry.getValue().size + "\t" + entry.getValue().lastModified + "\t" + entry.getKey());
+                out.newLine();
+            }
+        }
+    }
+
+    public static void commitPending(Path world) throws IOException {
+        Path pending = world.resolve(PENDING_FILE_NAME);
+        if (Files.exists(pending)) {
+            Files.move(pending, world.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Nullable public String getConfigFingerprint() {
+        return configFingerprint;
+    }
+
+    @Nullable public FileState getFile(String relativeName) {
+        return files.get(relativeName);
+    }
+
+    /**
+     * @return names of files added, removed or modified since the previous manifest
+     */
+    public Set<String> changedFiles(RelocationManifest previous) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, FileState> entry : files.entrySet()) {
+            if (!entry.getValue().equals(previous.files.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String name : previous.files.keySet()) {
+            if (!files.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        return changed;
+    }
+
+    static String toRelativeName(Path world, Path file) {
+        return world.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    static boolean isOwnFile(String relativeName) {
+        return relativeName.equals(FILE_NAME) || relativeName.equals(PENDING_FILE_NAME) || relativeName.equals(ConversionJournal.FILE_NAME);
+    }
+
+    public static class FileState {
+        final long size;
+        final long lastModified;
+
+        FileState(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        static FileState of(Path file) throws IOException {
+            return new FileState(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileState that = (FileState) o;
+            return size == that.size && lastModified == that.lastModified;
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(size, lastModified);
+        }
+    }
+}
@@ -29,7 +29,7 @@ import cubicchunks.regionlib.impl.MinecraftChunkLocation;
 import java.nio.ByteBuffer;
 import java.util.Objects;
 
-public class AnvilChunkData {
+public class AnvilChunkData implements EstimatedSize {
 
     private final Dimension dimension;
     private final MinecraftChunkLocation position;
@@ -53,6 +53,10 @@ public class AnvilChunkData {
         return data;
     }
 
+    @Override public long getEstimatedSize() {
+        return EstimatedSize.of(data) + OBJECT_OVERHEAD;
+    }
+
     @Override public boolean equals(Object o) {
         if (this == o) {
             return true;
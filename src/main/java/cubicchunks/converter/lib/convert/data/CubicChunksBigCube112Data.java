@@ -27,9 +27,10 @@ import cubicchunks.converter.lib.Dimension;
 import cubicchunks.regionlib.impl.EntryLocation3D;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Objects;
 
-public class CubicChunksBigCube112Data {
+public class CubicChunksBigCube112Data implements EstimatedSize {
 
     private final Dimension dimension;
     private final EntryLocation3D position;
@@ -59,6 +60,10 @@ public class CubicChunksBigCube112Data {
         return cubeData;
     }
 
+    @Override public long getEstimatedSize() {
+        return EstimatedSize.of(columnData) + EstimatedSize.ofBuffers(Arrays.asList(cubeData)) + OBJECT_OVERHEAD;
+    }
+
     @Override public boolean equals(Object o) {
         if (this == o) {
             return true;
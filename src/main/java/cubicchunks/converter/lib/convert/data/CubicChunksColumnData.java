@@ -30,7 +30,7 @@ import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Objects;
 
-public class CubicChunksColumnData {
+public class CubicChunksColumnData implements EstimatedSize {
 
     private final Dimension dimension;
     private final EntryLocation2D position;
@@ -61,6 +61,10 @@ public class CubicChunksColumnData {
         return cubeData;
     }
 
+    @Override public long getEstimatedSize() {
+        return EstimatedSize.of(columnData) + EstimatedSize.of(cubeData) + OBJECT_OVERHEAD;
+    }
+
     @Override public boolean equals(Object o) {
         if (this == o) {
             return true;
@@ -27,16 +27,21 @@ import cubicchunks.converter.lib.Dimension;
 import cubicchunks.regionlib.impl.EntryLocation3D;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Objects;
 
-public class CubicChunksProtoBigCubeData {
+public class CubicChunksProtoBigCubeData implements EstimatedSize {
 
     private final Dimension dimension;
     private final EntryLocation3D position;
     private final ByteBuffer columnData;
-    private final ByteBuffer cubeData;
+    private final ByteBuffer[] cubeData;
 
-    public CubicChunksProtoBigCubeData(Dimension dimension, EntryLocation3D position, ByteBuffer columnData, ByteBuffer cubeData) {
+    /**
+     * @param cubeData parts of the cube entry, in order. They are written one after another without being copied into a
+     * single buffer first.
+     */
+    public CubicChunksProtoBigCubeData(Dimension dimension, EntryLocation3D position, ByteBuffer columnData, ByteBuffer[] cubeData) {
         this.dimension = dimension;
         this.position = position;
         this.columnData = columnData;
@@ -55,10 +60,18 @@ public class CubicChunksProtoBigCubeData {
         return columnData;
     }
 
-    public ByteBuffer getCubeData() {
+    public ByteBuffer[] getCubeData() {
         return cubeData;
     }
 
+    @Override public long getEstimatedSize() {
+        long size = EstimatedSize.of(columnData) + OBJECT_OVERHEAD;
+        if (cubeData != null) {
+            size += EstimatedSize.ofBuffers(Arrays.asList(cubeData));
+        }
+        return size;
+    }
+
     @Override public boolean equals(Object o) {
         if (this == o) {
             return true;
@@ -70,11 +83,11 @@ public class CubicChunksProtoBigCubeData {
         return dimension.equals(that.dimension) &&
                 position.equals(that.position) &&
                 Objects.equals(columnData, that.columnData) &&
-                Objects.equals(cubeData, that.cubeData);
+                Arrays.equals(cubeData, that.cubeData);
     }
 
     @Override public int hashCode() {
-        return Objects.hash(dimension, position, columnData, cubeData);
+        return Objects.hash(dimension, position, columnData, Arrays.hashCode(cubeData));
     }
 
     @Override public String toString() {
@@ -82,7 +95,7 @@ public class CubicChunksProtoBigCubeData {
                 "dimension='" + dimension + '\'' +
                 ", position=" + position +
                 ", columnData=" + columnData +
-                ", cubeData=" + cubeData +
+                ", cubeData=" + Arrays.toString(cubeData) +
                 '}';
     }
 }
@@ -31,7 +31,7 @@ import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Objects;
 
-public class DualSourceCubicChunksColumnData {
+public class DualSourceCubicChunksColumnData implements EstimatedSize {
 
     private final Dimension dimension;
     private final EntryLocation2D position;
@@ -74,6 +74,10 @@ public class DualSourceCubicChunksColumnData {
         return fallbackCubeData;
     }
 
+    @Override public long getEstimatedSize() {
+        return EstimatedSize.of(columnData) + EstimatedSize.of(priorityCubeData) + EstimatedSize.of(fallbackCubeData) + OBJECT_OVERHEAD;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,91 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.data;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chunk data that can estimate how much heap it holds on to. Used to keep the amount of data in flight between
+ * conversion stages within the memory budget.
+ */
+public interface EstimatedSize {
+
+    /**
+     * Rough per-object overhead, for objects that don't report their size and for map entries.
+     */
+    long OBJECT_OVERHEAD = 64;
+
+    /**
+     * @return estimated heap size in bytes, including all referenced buffers
+     */
+    long getEstimatedSize();
+
+    static long of(Object data) {
+        if (data instanceof EstimatedSize) {
+            return ((EstimatedSize) data).getEstimatedSize();
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    /**
+     * A heap buffer keeps its whole backing array alive, so a slice of a bigger buffer (like a cube read as a slice of
+     * the whole region) is counted with all of it.
+     */
+    static long of(ByteBuffer buffer) {
+        if (buffer == null) {
+            return 0;
+        }
+        return (buffer.hasArray() ? buffer.array().length : buffer.capacity()) + OBJECT_OVERHEAD;
+    }
+
+    static long of(Map<Integer, ByteBuffer> buffers) {
+        if (buffers == null) {
+            return 0;
+        }
+        return ofBuffers(buffers.values()) + buffers.size() * OBJECT_OVERHEAD + OBJECT_OVERHEAD;
+    }
+
+    /**
+     * Like {@link #of(ByteBuffer)} for each buffer, but a backing array shared by multiple slices is counted once.
+     */
+    static long ofBuffers(Iterable<ByteBuffer> buffers) {
+        long size = 0;
+        Set<byte[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ByteBuffer buffer : buffers) {
+            if (buffer == null) {
+                continue;
+            }
+            if (buffer.hasArray()) {
+                size += arrays.add(buffer.array()) ? of(buffer) : OBJECT_OVERHEAD;
+            } else {
+                size += of(buffer);
+            }
+        }
+        return size;
+    }
+}
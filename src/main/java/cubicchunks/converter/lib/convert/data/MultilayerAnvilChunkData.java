@@ -25,7 +25,7 @@ package cubicchunks.converter.lib.convert.data;
 
 import java.util.Map;
 
-public class MultilayerAnvilChunkData {
+public class MultilayerAnvilChunkData implements EstimatedSize {
     private final Map<Integer, AnvilChunkData> worlds;
 
     public MultilayerAnvilChunkData(Map<Integer, AnvilChunkData> worlds) {
@@ -35,4 +35,12 @@ public class MultilayerAnvilChunkData {
     public Map<Integer, AnvilChunkData> getWorlds() {
         return worlds;
     }
+
+    @Override public long getEstimatedSize() {
+        long size = OBJECT_OVERHEAD;
+        for (AnvilChunkData world : worlds.values()) {
+            size += world.getEstimatedSize() + OBJECT_OVERHEAD;
+        }
+        return size;
+    }
 }
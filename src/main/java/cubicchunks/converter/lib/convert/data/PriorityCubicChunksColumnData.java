@@ -28,9 +28,11 @@ import cubicchunks.converter.lib.util.ImmutablePair;
 import cubicchunks.regionlib.impl.EntryLocation2D;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
-public class PriorityCubicChunksColumnData {
+public class PriorityCubicChunksColumnData implements EstimatedSize {
     private final Dimension dimension;
     private final EntryLocation2D position;
     private final ImmutablePair<Long, ByteBuffer> columnData;
@@ -66,4 +68,16 @@ public class PriorityCubicChunksColumnData {
     public boolean isCompressed() {
         return isCompressed;
     }
+
+    @Override public long getEstimatedSize() {
+        long size = OBJECT_OVERHEAD;
+        if (columnData != null) {
+            size += EstimatedSize.of(columnData.getValue()) + OBJECT_OVERHEAD;
+        }
+        List<ByteBuffer> cubes = new ArrayList<>(cubeData.size());
+        for (ImmutablePair<Long, ByteBuffer> cube : cubeData.values()) {
+            cubes.add(cube.getValue());
+        }
+        return size + EstimatedSize.ofBuffers(cubes) + cubes.size() * 2 * OBJECT_OVERHEAD;
+    }
 }
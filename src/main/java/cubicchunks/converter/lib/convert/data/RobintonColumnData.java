@@ -30,7 +30,7 @@ import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Objects;
 
-public class RobintonColumnData {
+public class RobintonColumnData implements EstimatedSize {
 
     private final Dimension dimension;
     private final EntryLocation2D position;
@@ -54,6 +54,10 @@ public class RobintonColumnData {
         return cubeData;
     }
 
+    @Override public long getEstimatedSize() {
+        return EstimatedSize.of(cubeData) + OBJECT_OVERHEAD;
+    }
+
     @Override public boolean equals(Object o) {
         if (this == o) {
             return true;
@@ -28,6 +28,7 @@ import static cubicchunks.regionlib.impl.save.MinecraftSaveSection.MinecraftRegi
 import static java.nio.file.Files.exists;
 
 import cubicchunks.converter.lib.Dimension;
+import cubicchunks.converter.lib.convert.ConversionJournal;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.util.MemoryReadRegion;
 import cubicchunks.converter.lib.util.RWLockingCachedRegionProvider;
@@ -41,8 +42,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -50,6 +53,7 @@ import java.util.function.Predicate;
 public class AnvilChunkReader extends BaseMinecraftReader<AnvilChunkData, MinecraftSaveSection> {
 
     private final Thread loadThread;
+    private Set<String> skippedChunks = Collections.emptySet();
 
     public AnvilChunkReader(Path srcDir) {
         super(srcDir, (dim, path) -> exists(getDimensionPath(dim, path)) ? createSave(dim, path) : null);
@@ -88,11 +92,20 @@ public class AnvilChunkReader extends BaseMinecraftReader<AnvilChunkData, Minecr
     }
 
     private void doCountChunks(Runnable increment) throws IOException, UncheckedInterruptedException {
-        for (MinecraftSaveSection save : saves.values()) {
-            save.forAllKeys(interruptibleConsumer(loc -> increment.run()));
+        for (Map.Entry<Dimension, MinecraftSaveSection> entry : saves.entrySet()) {
+            Dimension d = entry.getKey();
+            entry.getValue().forAllKeys(interruptibleConsumer(loc -> {
+                if (!isSkipped(d, loc)) {
+                    increment.run();
+                }
+            }));
         }
     }
 
+    private boolean isSkipped(Dimension d, MinecraftChunkLocation loc) {
+        return !skippedChunks.isEmpty() && skippedChunks.contains(ConversionJournal.columnKey(d, loc.getEntryX(), loc.getEntryZ()));
+    }
+
     @Override public void loadChunks(Consumer<? super AnvilChunkData> consumer, Predicate<Throwable> errorHandler) throws IOException {
         try {
             doLoadChunks(consumer, errorHandler);
@@ -109,6 +122,9 @@ public class AnvilChunkReader extends BaseMinecraftReader<AnvilChunkData, Minecr
             MinecraftSaveSection vanillaSave = entry.getValue();
             Dimension d = entry.getKey();
             vanillaSave.forAllKeys(interruptibleConsumer(mcPos -> {
+                if (isSkipped(d, mcPos)) {
+                    return;
+                }
                 try {
                     Optional<ByteBuffer> load = vanillaSave.load(mcPos, true);
                     consumer.accept(new AnvilChunkData(d, mcPos, load.orElse(null)));
@@ -126,4 +142,12 @@ public class AnvilChunkReader extends BaseMinecraftReader<AnvilChunkData, Minecr
         loadThread.interrupt();
     }
 
+    @Override public String getJournalKey(AnvilChunkData data) {
+        return ConversionJournal.columnKey(data.getDimension(), data.getPosition().getEntryX(), data.getPosition().getEntryZ());
+    }
+
+    @Override public void skipConverted(Set<String> journalKeys) {
+        this.skippedChunks = journalKeys;
+    }
+
 }
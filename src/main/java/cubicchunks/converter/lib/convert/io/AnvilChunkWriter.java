@@ -31,55 +31,163 @@ import cubicchunks.converter.lib.Dimension;
 import cubicchunks.converter.lib.convert.ChunkDataWriter;
 import cubicchunks.converter.lib.convert.data.AnvilChunkData;
 import cubicchunks.converter.lib.convert.data.MultilayerAnvilChunkData;
+import cubicchunks.converter.lib.util.IOExecutors;
 import cubicchunks.converter.lib.util.MemoryWriteRegion;
 import cubicchunks.converter.lib.util.RWLockingCachedRegionProvider;
+import cubicchunks.converter.lib.util.UncheckedInterruptedException;
 import cubicchunks.converter.lib.util.Utils;
 import cubicchunks.regionlib.impl.MinecraftChunkLocation;
 import cubicchunks.regionlib.impl.header.TimestampHeaderEntryProvider;
 import cubicchunks.regionlib.impl.save.MinecraftSaveSection;
 import cubicchunks.regionlib.lib.Region;
 import cubicchunks.regionlib.lib.provider.SimpleRegionProvider;
+import cubicchunks.regionlib.util.CheckedConsumer;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Writes every world layer into its own directory. Chunks are saved on writer lanes, sharded by layer and region, so
+ * that tall worlds write many layers and regions at once. A region is always written by the same lane.
+ * <p>
+ * {@link #accept} only queues the chunk, {@link #flush()} and {@link #close()} wait for all queued chunks. A failed save
+ * is sticky: it isn't known which of the chunks accepted since the last flush made it to disk, so every later flush and
+ * close fails with it.
+ * <p>
+ * Flushing closes the cached regions. {@link MemoryWriteRegion} writes each region to a temporary file and moves it
+ * into place only after forcing it to disk, so flushed chunks are durable.
+ */
 public class AnvilChunkWriter implements ChunkDataWriter<MultilayerAnvilChunkData> {
 
+    private static final int LANES = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // chunks accepted but not saved yet, this bounds the memory held by the lanes
+    private static final int MAX_PENDING = LANES * 64;
+
     private Path dstPath;
     private Map<Integer, Map<Dimension, MinecraftSaveSection>> saves = new ConcurrentHashMap<>();
+    private final List<RWLockingCachedRegionProvider<?>> regionProviders = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService[] lanes = new ExecutorService[LANES];
+    private final Semaphore pending = new Semaphore(MAX_PENDING);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
 
     public AnvilChunkWriter(Path dstPath) {
         this.dstPath = dstPath;
+        for (int i = 0; i < LANES; i++) {
+            lanes[i] = IOExecutors.newExecutor("Anvil writer lane " + i, 1);
+        }
     }
 
     @Override public void accept(MultilayerAnvilChunkData data) throws IOException {
         for (Map.Entry<Integer, AnvilChunkData> entry : data.getWorlds().entrySet()) {
             int layerY = entry.getKey();
             AnvilChunkData chunk = entry.getValue();
-            Map<Dimension, MinecraftSaveSection> layer = saves.computeIfAbsent(layerY, i -> new HashMap<>());
-            MinecraftSaveSection save = layer.computeIfAbsent(chunk.getDimension(), propagateExceptions(dim -> {
-                Path regionDir = getDimensionPath(entry.getValue().getDimension(), dstPath.resolve(dirName(layerY)));
-                Utils.createDirectories(regionDir);
-                return new MinecraftSaveSection(new RWLockingCachedRegionProvider<>(
-                        new SimpleRegionProvider<>(new MinecraftChunkLocation.Provider(MCA.name().toLowerCase()), regionDir, (keyProvider, regionKey) ->
-                                MemoryWriteRegion.<MinecraftChunkLocation>builder()
-                                        .setDirectory(regionDir)
-                                        .setSectorSize(4096)
-                                        .setKeyProvider(keyProvider)
-                                        .setRegionKey(regionKey)
-                                        .addHeaderEntry(new TimestampHeaderEntryProvider<>(TimeUnit.SECONDS))
-                                        .build(),
-                                (file, key) -> Files.exists(file)
-                        )
-                ));
+            MinecraftSaveSection save = getSave(layerY, chunk.getDimension());
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedInterruptedException();
+            }
+            lane(layerY, chunk.getPosition()).execute(() -> {
+                try {
+                    save.save(chunk.getPosition(), chunk.getData());
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    pending.release();
+                }
+            });
+        }
+    }
+
+    private MinecraftSaveSection getSave(int layerY, Dimension dimension) {
+        Map<Dimension, MinecraftSaveSection> layer = saves.computeIfAbsent(layerY, i -> new ConcurrentHashMap<>());
+        return layer.computeIfAbsent(dimension, propagateExceptions(dim -> {
+            Path regionDir = getDimensionPath(dim, dstPath.resolve(dirName(layerY)));
+            Utils.createDirectories(regionDir);
+            RWLockingCachedRegionProvider<MinecraftChunkLocation> provider = new RWLockingCachedRegionProvider<>(
+                    new SimpleRegionProvider<>(new MinecraftChunkLocation.Provider(MCA.name().toLowerCase()), regionDir, (keyProvider, regionKey) ->
+                            MemoryWriteRegion.<MinecraftChunkLocation>builder()
+                                    .setDirectory(regionDir)
+                                    .setSectorSize(4096)
+                                    .setKeyProvider(keyProvider)
+                                    .setRegionKey(regionKey)
+                                    .addHeaderEntry(new TimestampHeaderEntryProvider<>(TimeUnit.SECONDS))
+                                    .build(),
+                            (file, key) -> Files.exists(file)
+                    )
+            );
+            regionProviders.add(provider);
+            return new MinecraftSaveSection(provider);
+        }));
+    }
+
+    private ExecutorService lane(int layerY, MinecraftChunkLocation pos) {
+        int hash = (layerY * 31 + (pos.getEntryX() >> 5)) * 31 + (pos.getEntryZ() >> 5);
+        return lanes[Math.floorMod(hash, LANES)];
+    }
+
+    private void awaitPending() {
+        pending.acquireUninterruptibly(MAX_PENDING);
+        pending.release(MAX_PENDING);
+    }
+
+    private void throwIfFailed() throws IOException {
+        Throwable t = failure.get();
+        if (t == null) {
+            return;
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        throw new IOException(t);
+    }
+
+    /**
+     * Runs the task for each of the items, spread over the lanes, and waits for all of them.
+     */
+    private <T> void onLanes(List<T> items, CheckedConsumer<T, IOException> task) throws IOException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            futures.add(lanes[i % LANES].submit(() -> {
+                task.accept(item);
+                return null;
             }));
-            save.save(chunk.getPosition(), chunk.getData());
+        }
+        IOException exception = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedInterruptedException();
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+                if (exception == null) {
+                    exception = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
         }
     }
 
@@ -95,25 +203,31 @@ public class AnvilChunkWriter implements ChunkDataWriter<MultilayerAnvilChunkDat
         return String.format("layer [%d, %d)", layerY * 256, (layerY + 1) * 256);
     }
 
+    @Override public boolean flush() throws IOException {
+        awaitPending();
+        throwIfFailed();
+        // every layer has its own provider, write them out in parallel
+        onLanes(regionProviders, RWLockingCachedRegionProvider::clearRegions);
+        return true;
+    }
+
     @Override public void discardData() throws IOException {
         Utils.rm(dstPath);
     }
 
     @Override public void close() throws Exception {
-        boolean exception = false;
-        for (Map<?, ? extends Closeable> saves : this.saves.values()) {
-            for (Closeable save : saves.values()) {
-                try {
-                    save.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    exception = true;
-                }
+        try {
+            awaitPending();
+            List<Closeable> toClose = new ArrayList<>();
+            for (Map<?, ? extends Closeable> saves : this.saves.values()) {
+                toClose.addAll(saves.values());
+            }
+            onLanes(toClose, Closeable::close);
+                throwIfFailed();
+        } finally {
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
             }
-        }
-
-        if (exception) {
-            throw new IOException();
         }
     }
 }
@@ -0,0 +1,150 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.io;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import cubicchunks.converter.lib.util.MemoryReadRegion;
+import cubicchunks.regionlib.api.region.IRegion;
+import cubicchunks.regionlib.api.region.IRegionProvider;
+import cubicchunks.regionlib.api.region.key.IKey;
+import cubicchunks.regionlib.impl.EntryLocation3D;
+import cubicchunks.regionlib.impl.SaveCubeColumns;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Loads all cubes of a column with one pass per region, instead of going through {@link SaveCubeColumns#load} and
+ * the region cache lock for every cube.
+ */
+public class CubeBatchLoader {
+
+    /**
+     * Loads cubes of the column at the given y coordinates.
+     * <p>
+     * Cubes in {@link MemoryReadRegion}s are slices of the region buffer, see
+     * {@link MemoryReadRegion#readValueSlices(java.util.Collection)}. Cubes not found in the main region provider,
+     * like ones stored in external files, are loaded through the save.
+     *
+     * @param cubeRegions the first (main) region provider of the 3d save section of {@code save}
+     * @return cube data by y coordinate, cubes that don't exist are missing
+     */
+    public static Map<Integer, ByteBuffer> loadCubes(SaveCubeColumns save, IRegionProvider<EntryLocation3D> cubeRegions,
+            int x, int z, IntArrayList yCoords) throws IOException {
+        Map<Integer, ByteBuffer> cubes = new HashMap<>();
+        for (ObjectCursor<List<EntryLocation3D>> cursor : groupByRegion(x, z, yCoords).values()) {
+            List<EntryLocation3D> keys = cursor.value;
+            Map<EntryLocation3D, ByteBuffer> values = cubeRegions.fromExistingRegion(keys.get(0), region -> readAll(region, keys))
+                    .orElse(Collections.emptyMap());
+            for (EntryLocation3D key : keys) {
+                ByteBuffer value = values.get(key);
+                if (value == null) {
+                    value = save.load(key, true).orElse(null);
+                }
+                if (value != null) {
+                    cubes.put(key.getEntryY(), value);
+                }
+            }
+        }
+        return cubes;
+    }
+
+    /**
+     * Finds which of the cubes exist, using only region headers. No cube data is read, so this is cheap even for
+     * regions that haven't been loaded yet.
+     *
+     * @param cubeRegions all region providers of the 3d save section, in the order the save section uses them
+     * @return y coordinates of existing cubes
+     */
+    public static IntArrayList findExistingCubes(List<IRegionProvider<EntryLocation3D>> cubeRegions, int x, int z,
+            IntArrayList yCoords) throws IOException {
+        IntArrayList existing = new IntArrayList();
+        for (ObjectCursor<List<EntryLocation3D>> cursor : groupByRegion(x, z, yCoords).values()) {
+            List<EntryLocation3D> keys = cursor.value;
+            List<EntryLocation3D> missing = cubeRegions.get(0).fromExistingRegion(keys.get(0), region -> {
+                List<EntryLocation3D> notInRegion = new ArrayList<>();
+                for (EntryLocation3D key : keys) {
+                    if (!region.hasValue(key)) {
+                        notInRegion.add(key);
+                    }
+                }
+                return notInRegion;
+            }).orElse(keys);
+            for (EntryLocation3D key : keys) {
+                if (!missing.contains(key) || hasEntry(cubeRegions.subList(1, cubeRegions.size()), key)) {
+                    existing.add(key.getEntryY());
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * @return true if any of the region providers has the entry, checked using only region headers
+     */
+    public static <K extends IKey<K>> boolean hasEntry(List<IRegionProvider<K>> regions, K key) throws IOException {
+        for (IRegionProvider<K> provider : regions) {
+            if (provider.fromExistingRegion(key, region -> region.hasValue(key)).orElse(false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IntObjectHashMap<List<EntryLocation3D>> groupByRegion(int x, int z, IntArrayList yCoords) {
+        IntObjectHashMap<List<EntryLocation3D>> byRegion = new IntObjectHashMap<>();
+        for (IntCursor yCursor : yCoords) {
+            int regionY = yCursor.value >> 4;
+            List<EntryLocation3D> keys = byRegion.get(regionY);
+            if (keys == null) {
+                keys = new ArrayList<>();
+                byRegion.put(regionY, keys);
+            }
+            keys.add(new EntryLocation3D(x, yCursor.value, z));
+        }
+        return byRegion;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<EntryLocation3D, ByteBuffer> readAll(IRegion<EntryLocation3D> region, List<EntryLocation3D> keys) throws IOException {
+        if (region instanceof MemoryReadRegion) {
+            return ((MemoryReadRegion<EntryLocation3D>) region).readValueSlices(keys);
+        }
+        Map<EntryLocation3D, ByteBuffer> values = new HashMap<>();
+        for (EntryLocation3D key : keys) {
+            Optional<ByteBuffer> value = region.readValue(key);
+            value.ifPresent(v -> values.put(key, v));
+        }
+        return values;
+    }
+}
@@ -30,6 +30,7 @@ import com.carrotsearch.hppc.cursors.IntCursor;
 import cubicchunks.converter.lib.Dimension;
 import cubicchunks.converter.lib.Dimensions;
 import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.ConversionJournal;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.util.BoundingBox;
 import cubicchunks.converter.lib.util.MemoryReadRegion;
@@ -75,11 +76,13 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
 
     private final CompletableFuture<ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
+    private final ReaderPool readerPool = new ReaderPool("Cubic chunks reader");
     private static final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d = new WeakHashMap<>();
     private static final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d = new WeakHashMap<>();
 
     private final Map<String, List<BoundingBox>> regionBoundingBoxes = new HashMap<>();
     private final Map<String, List<BoundingBox>> createIfMissingBoxes = new HashMap<>();
+    private Set<String> skippedColumns = Collections.emptySet();
 
     public CubicChunkReader(Path srcDir, ConverterConfig config) {
         super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path)) : null);
@@ -141,6 +144,9 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
                 createIfMissingList.forEach(box -> box.forEach(toCreateIfMissing::add));
             }
             CheckedConsumer<EntryLocation3D, IOException> cons = interruptibleConsumer(loc -> {
+                if (!skippedColumns.isEmpty() && skippedColumns.contains(ConversionJournal.columnKey(dim, loc.getEntryX(), loc.getEntryZ()))) {
+                    return;
+                }
                 EntryLocation2D loc2d = new EntryLocation2D(loc.getEntryX(), loc.getEntryZ());
                 chunksMap.computeIfAbsent(loc2d, l -> {
                     increment.run();
@@ -244,7 +250,8 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
             }
             Dimension dim = dimEntry.getKey();
             SaveCubeColumns save = saves.get(dim);
-            dimEntry.getValue().parallelStream().forEach(chunksEntry -> {
+            IRegionProvider<EntryLocation3D> cubeRegions = providers3d.get(save).get(0);
+            readerPool.forEachPartitioned(dimEntry.getValue(), entry -> ReaderPool.columnRegionKey(entry.getKey().getEntryX(), entry.getKey().getEntryZ()), chunksEntry -> {
                 if (Thread.interrupted()) {
                     return;
                 }
@@ -259,6 +266,13 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
                         return;
                     }
                 }
+                Map<Integer, ByteBuffer> loaded = null;
+                try {
+                    loaded = CubeBatchLoader.loadCubes(save, cubeRegions, pos2d.getEntryX(), pos2d.getEntryZ(), yCoords);
+                } catch (Exception e) {
+                    // load them one by one below, to report errors for each cube separately
+                    e.printStackTrace();
+                }
                 Map<Integer, ByteBuffer> cubes = new HashMap<>();
                 for (IntCursor yCursor : yCoords) {
                     if (Thread.interrupted()) {
@@ -268,7 +282,10 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
                     ByteBuffer cube;
                     try {
                         EntryLocation3D location = new EntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ());
-                        cube = save.load(location, true).orElse(Utils.createAirCubeBuffer(location));
+                        cube = loaded != null ? loaded.get(y) : save.load(location, true).orElse(null);
+                        if (cube == null) {
+                            cube = Utils.createAirCubeBuffer(location);
+                        }
                     } catch (Exception e) {
                         e.printStackTrace();
                         if (!errorHandler.test(e)) {
@@ -286,6 +303,15 @@ public class CubicChunkReader extends BaseMinecraftReader<CubicChunksColumnData,
 
     @Override public void stop() {
         loadThread.interrupt();
+        readerPool.cancel();
+    }
+
+    @Override public String getJournalKey(CubicChunksColumnData data) {
+        return ConversionJournal.columnKey(data.getDimension(), data.getPosition().getEntryX(), data.getPosition().getEntryZ());
+    }
+
+    @Override public void skipConverted(Set<String> journalKeys) {
+        this.skippedColumns = journalKeys;
     }
 
     private static SaveCubeColumns createSave(Path path) {
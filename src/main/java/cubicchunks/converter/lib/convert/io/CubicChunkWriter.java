@@ -43,13 +43,17 @@ import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class CubicChunkWriter implements ChunkDataWriter<CubicChunksColumnData> {
 
     private final Path dstPath;
     private final Map<Dimension, SaveCubeColumns> saves = new ConcurrentHashMap<>();
+    // providers of regions that are only written to disk when closed
+    private final List<RWLockingCachedRegionProvider<?>> bufferingProviders = new CopyOnWriteArrayList<>();
 
     public CubicChunkWriter(Path dstPath) {
         this.dstPath = dstPath;
@@ -68,8 +72,10 @@ public class CubicChunkWriter implements ChunkDataWriter<CubicChunksColumnData>
                 Path part3d = path.resolve("region3d");
                 Utils.createDirectories(part3d);
 
+                RWLockingCachedRegionProvider<EntryLocation2D> prov2d;
+                RWLockingCachedRegionProvider<EntryLocation3D> prov3d;
                 SaveSection2D section2d = new SaveSection2D(
-                        new RWLockingCachedRegionProvider<>(
+                        prov2d = new RWLockingCachedRegionProvider<>(
                                 new SimpleRegionProvider<>(new EntryLocation2D.Provider(), part2d, (keyProv, r) ->
                                         new MemoryWriteRegion.Builder<EntryLocation2D>()
                                                 .setDirectory(part2d)
@@ -87,7 +93,7 @@ public class CubicChunkWriter implements ChunkDataWriter<CubicChunksColumnData>
                                 )
                         ));
                 SaveSection3D section3d = new SaveSection3D(
-                        new RWLockingCachedRegionProvider<>(
+                        prov3d = new RWLockingCachedRegionProvider<>(
                                 new SimpleRegionProvider<>(new EntryLocation3D.Provider(), part3d, (keyProv, r) ->
                                         new MemoryWriteRegion.Builder<EntryLocation3D>()
                                                 .setDirectory(part3d)
@@ -105,6 +111,8 @@ public class CubicChunkWriter implements ChunkDataWriter<CubicChunksColumnData>
                                 )
                         ));
 
+                bufferingProviders.add(prov2d);
+                bufferingProviders.add(prov3d);
                 return new SaveCubeColumns(section2d, section3d);
             } catch (IOException e) {
                 throw new RuntimeException(e);
@@ -119,6 +127,13 @@ public class CubicChunkWriter implements ChunkDataWriter<CubicChunksColumnData>
         }
     }
 
+    @Override public boolean flush() throws IOException {
+        for (RWLockingCachedRegionProvider<?> provider : bufferingProviders) {
+            provider.clearRegions();
+        }
+        return true;
+    }
+
     @Override public void discardData() throws IOException {
         Utils.rm(dstPath);
     }
@@ -25,6 +25,8 @@ package cubicchunks.converter.lib.convert.io;
 
 import static cubicchunks.converter.lib.util.Utils.interruptibleConsumer;
 
+import com.carrotsearch.hppc.LongByteHashMap;
+import com.carrotsearch.hppc.cursors.LongByteCursor;
 import cubicchunks.converter.lib.Dimension;
 import cubicchunks.converter.lib.convert.data.CubicChunksBigCube112Data;
 import cubicchunks.converter.lib.util.BigCubeCoords;
@@ -33,6 +35,7 @@ import cubicchunks.converter.lib.util.RWLockingCachedRegionProvider;
 import cubicchunks.converter.lib.util.UncheckedInterruptedException;
 import cubicchunks.converter.lib.util.Utils;
 import cubicchunks.regionlib.api.region.IRegionProvider;
+import cubicchunks.regionlib.api.region.key.RegionKey;
 import cubicchunks.regionlib.impl.EntryLocation2D;
 import cubicchunks.regionlib.impl.EntryLocation3D;
 import cubicchunks.regionlib.impl.SaveCubeColumns;
@@ -47,8 +50,8 @@ import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -58,53 +61,107 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class CubicChunksBigCube112Reader extends BaseMinecraftReader<CubicChunksBigCube112Data, SaveCubeColumns> {
 
+    // the region and ext region providers of each dimension, in the order the save section uses them
+    private final Map<Dimension, List<IRegionProvider<EntryLocation3D>>> providers3d;
+
     private final CompletableFuture<ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
+    private final ReaderPool readerPool = new ReaderPool("Cubic chunks reader");
 
 
     public CubicChunksBigCube112Reader(Path srcDir) {
-        super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path)) : null);
+        this(srcDir, new ConcurrentHashMap<Dimension, List<IRegionProvider<EntryLocation3D>>>());
+    }
+
+    private CubicChunksBigCube112Reader(Path srcDir, Map<Dimension, List<IRegionProvider<EntryLocation3D>>> providers3d) {
+        super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path), dim, providers3d) : null);
+        this.providers3d = providers3d;
         loadThread = Thread.currentThread();
     }
 
     @Override public void countInputChunks(Runnable increment) throws IOException, InterruptedException {
         try {
-            Map<Dimension, List<Map.Entry<EntryLocation3D, Integer>>> dimensions = doCountChunks(increment);
+            Map<Dimension, List<RegionCubes>> dimensions = doCountChunks(increment);
             chunkList.complete(new ChunkList(dimensions));
         } catch (UncheckedInterruptedException ex) {
             chunkList.complete(null);
         }
     }
 
-    private Map<Dimension, List<Map.Entry<EntryLocation3D, Integer>>> doCountChunks(Runnable increment) {
-        Map<Dimension, List<Map.Entry<EntryLocation3D, Integer>>> dimensions = new HashMap<>();
+    private Map<Dimension, List<RegionCubes>> doCountChunks(Runnable increment) throws IOException {
+        Map<Dimension, List<RegionCubes>> dimensions = new HashMap<>();
+        EntryLocation3D.Provider keyProvider = new EntryLocation3D.Provider();
         for (Map.Entry<Dimension, SaveCubeColumns> entry : saves.entrySet()) {
-            SaveCubeColumns save = entry.getValue();
             Dimension dim = entry.getKey();
-            Map<EntryLocation3D, Integer> chunksMap = new ConcurrentHashMap<>();
-
-            CheckedConsumer<EntryLocation3D, IOException> addPos = interruptibleConsumer(loc -> {
-                int index = BigCubeCoords.sectionToIndex32(loc.getEntryX(), loc.getEntryY(), loc.getEntryZ());
-                chunksMap.merge(new EntryLocation3D(
-                                BigCubeCoords.sectionToCube(loc.getEntryX()),
-                                BigCubeCoords.sectionToCube(loc.getEntryY()),
-                                BigCubeCoords.sectionToCube(loc.getEntryZ())),
-                        1 << index, (a, b) -> a | b);
-            });
-            try {
-                save.getSaveSection3D().forAllKeys(addPos);
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
+            List<IRegionProvider<EntryLocation3D>> regionProviders = providers3d.get(dim);
+            Path part3d = getDimensionPath(dim, srcDir).resolve("region3d");
+            // regions with only ext entries have no region file, so names of both are listed
+            List<RegionKey> regionKeys;
+            try (Stream<Path> files = Files.list(part3d)) {
+                regionKeys = files.map(file -> file.getFileName().toString())
+                        .map(name -> name.endsWith(".3dr.ext") ? name.substring(0, name.length() - ".ext".length()) : name)
+                        .filter(name -> name.endsWith(".3dr"))
+                        .distinct()
+                        .map(RegionKey::new)
+                        .collect(Collectors.toList());
             }
-            List<Map.Entry<EntryLocation3D, Integer>> chunks = dimensions.computeIfAbsent(dim, p -> new ArrayList<>());
-            chunksMap.forEach((k, v) -> chunks.add(new AbstractMap.SimpleEntry<>(k, v)));
+            List<RegionCubes> regions = Collections.synchronizedList(new ArrayList<>());
+            // a big cube never crosses a region file, so each region is scanned into its own map
+            // and nothing has to be merged
+            readerPool.forEachPartitioned(regionKeys, regionKey -> regionKey.getName().hashCode(), regionKey -> {
+                RegionCubes cubes = new RegionCubes();
+                CheckedConsumer<EntryLocation3D, IOException> addSection = interruptibleConsumer(loc -> {
+                    if (cubes.masks.isEmpty()) {
+                        cubes.partitionKey = ReaderPool.cubeRegionKey(loc.getEntryX(), loc.getEntryY(), loc.getEntryZ());
+                    }
+                    int index = BigCubeCoords.sectionToIndex32(loc.getEntryX(), loc.getEntryY(), loc.getEntryZ());
+                    long pos = packCubePos(
+                            BigCubeCoords.sectionToCube(loc.getEntryX()),
+                            BigCubeCoords.sectionToCube(loc.getEntryY()),
+                            BigCubeCoords.sectionToCube(loc.getEntryZ()));
+                    // a section in both the region and the ext region just sets the same bit again
+                    cubes.masks.put(pos, (byte) (cubes.masks.get(pos) | 1 << index));
+                });
+                EntryLocation3D anyKey = keyProvider.fromRegionAndId(regionKey, 0);
+                try {
+                    for (IRegionProvider<EntryLocation3D> provider : regionProviders) {
+                        provider.forExistingRegion(anyKey, region -> region.forEachKey(addSection));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (cubes.masks.isEmpty()) {
+                    return;
+                }
+                // incomplete cubes are skipped when loading, so they aren't counted
+                for (LongByteCursor cursor : cubes.masks) {
+                    if (cursor.value == (byte) 0xFF) {
+                        increment.run();
+                    }
+                }
+                regions.add(cubes);
+            });
+            dimensions.put(dim, regions);
         }
         return dimensions;
     }
 
+    /**
+     * Packs big cube coordinates into a long, 21 bits each. That is enough for 2^25 blocks in each direction.
+     */
+    private static long packCubePos(int x, int y, int z) {
+        return ((long) x & 0x1FFFFF) << 42 | ((long) y & 0x1FFFFF) << 21 | ((long) z & 0x1FFFFF);
+    }
+
+    private static EntryLocation3D unpackCubePos(long pos) {
+        return new EntryLocation3D((int) (pos << 1 >> 43), (int) (pos << 22 >> 43), (int) (pos << 43 >> 43));
+    }
+
     @Override public void loadChunks(Consumer<? super CubicChunksBigCube112Data> accept, Predicate<Throwable> errorHandler)
             throws InterruptedException {
         try {
@@ -121,59 +178,59 @@ public class CubicChunksBigCube112Reader extends BaseMinecraftReader<CubicChunks
     }
 
     private void doLoadChunks(Consumer<? super CubicChunksBigCube112Data> consumer, ChunkList list, Predicate<Throwable> errorHandler) {
-        for (Map.Entry<Dimension, List<Map.Entry<EntryLocation3D, Integer>>> dimEntry : list.getChunks().entrySet()) {
+        for (Map.Entry<Dimension, List<RegionCubes>> dimEntry : list.getChunks().entrySet()) {
             if (Thread.interrupted()) {
                 return;
             }
             Dimension dim = dimEntry.getKey();
             SaveCubeColumns save = saves.get(dim);
-            dimEntry.getValue().parallelStream().forEach(chunksEntry -> {
-                if (Thread.interrupted()) {
-                    return;
-                }
-                EntryLocation3D pos = chunksEntry.getKey();
-                int presentSections = chunksEntry.getValue();
-                if (presentSections != 0xFF) {
-                    System.out.println("Skipping incomplete cube at " + pos + " sections = " + Integer.toBinaryString(presentSections));
-                    return;
-                }
-                ByteBuffer[] cubes = new ByteBuffer[8];
-                for (int i = 0; i < 8; i++) {
-                    if (Thread.interrupted()) {
+            readerPool.forEachPartitioned(dimEntry.getValue(), regionCubes -> regionCubes.partitionKey, regionCubes -> {
+                for (LongByteCursor chunksEntry : regionCubes.masks) {
+                    if (Thread.interrupted() || readerPool.isCancelled()) {
                         return;
                     }
-                    if ((presentSections & (1 << i)) == 0) {
+                    EntryLocation3D pos = unpackCubePos(chunksEntry.key);
+                    int presentSections = chunksEntry.value & 0xFF;
+                    if (presentSections != 0xFF) {
+                        System.out.println("Skipping incomplete cube at " + pos + " sections = " + Integer.toBinaryString(presentSections));
                         continue;
                     }
-                    int dx = BigCubeCoords.indexToX(i);
-                    int dy = BigCubeCoords.indexToY(i);
-                    int dz = BigCubeCoords.indexToZ(i);
-                    EntryLocation3D sectionPos = new EntryLocation3D(
-                            BigCubeCoords.cubeToSection(pos.getEntryX(), dx),
-                            BigCubeCoords.cubeToSection(pos.getEntryY(), dy),
-                            BigCubeCoords.cubeToSection(pos.getEntryZ(), dz)
-                    );
-                    ByteBuffer cube;
-                    try {
-                        cube = save.load(sectionPos, true).orElseThrow(
-                                () -> new IllegalStateException("Expected cube (section) at " + sectionPos + " in dimension " + dim));
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        if (!errorHandler.test(e)) {
-                            throw new UncheckedInterruptedException();
+                    ByteBuffer[] cubes = new ByteBuffer[8];
+                    for (int i = 0; i < 8; i++) {
+                        if (Thread.interrupted()) {
+                            return;
                         }
-                        continue;
+                        int dx = BigCubeCoords.indexToX(i);
+                        int dy = BigCubeCoords.indexToY(i);
+                        int dz = BigCubeCoords.indexToZ(i);
+                        EntryLocation3D sectionPos = new EntryLocation3D(
+                                BigCubeCoords.cubeToSection(pos.getEntryX(), dx),
+                                BigCubeCoords.cubeToSection(pos.getEntryY(), dy),
+                                BigCubeCoords.cubeToSection(pos.getEntryZ(), dz)
+                        );
+                        ByteBuffer cube;
+                        try {
+                            cube = save.load(sectionPos, true).orElseThrow(
+                                    () -> new IllegalStateException("Expected cube (section) at " + sectionPos + " in dimension " + dim));
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            if (!errorHandler.test(e)) {
+                                throw new UncheckedInterruptedException();
+                            }
+                            continue;
+                        }
+                        cubes[i] = cube;
                     }
-                    cubes[i] = cube;
+                    CubicChunksBigCube112Data data = new CubicChunksBigCube112Data(dim, pos, null, cubes);
+                    consumer.accept(data);
                 }
-                CubicChunksBigCube112Data data = new CubicChunksBigCube112Data(dim, pos, null, cubes);
-                consumer.accept(data);
             });
         }
     }
 
     @Override public void stop() {
         loadThread.interrupt();
+        readerPool.cancel();
     }
 
 
@@ -184,7 +241,8 @@ public class CubicChunksBigCube112Reader extends BaseMinecraftReader<CubicChunks
         return worldDir;
     }
 
-    private static SaveCubeColumns createSave(Path path) {
+    private static SaveCubeColumns createSave(Path path, Dimension dim,
+            Map<Dimension, List<IRegionProvider<EntryLocation3D>>> providers3d) {
         try {
             Utils.createDirectories(path);
 
@@ -236,21 +294,32 @@ public class CubicChunksBigCube112Reader extends BaseMinecraftReader<CubicChunks
                             )
                     ));
 
-            return new SaveCubeColumns(section2d, section3d);
+            SaveCubeColumns saveCubeColumns = new SaveCubeColumns(section2d, section3d);
+            providers3d.put(dim, Arrays.asList(prov3d1, prov3d2));
+            return saveCubeColumns;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Big cubes of one region3d region, with bit {@code i} of the value set if section {@code i} of the cube exists.
+     */
+    private static class RegionCubes {
+
+        private final LongByteHashMap masks = new LongByteHashMap();
+        private long partitionKey;
+    }
+
     private static class ChunkList {
 
-        private final Map<Dimension, List<Map.Entry<EntryLocation3D, Integer>>> chunks;
+        private final Map<Dimension, List<RegionCubes>> chunks;
 
-        private ChunkList(Map<Dimension, List<Map.Entry<EntryLocation3D, Integer>>> chunks) {
+        private ChunkList(Map<Dimension, List<RegionCubes>> chunks) {
             this.chunks = chunks;
         }
 
-        Map<Dimension, List<Map.Entry<EntryLocation3D, Integer>>> getChunks() {
+        Map<Dimension, List<RegionCubes>> getChunks() {
             return chunks;
         }
     }
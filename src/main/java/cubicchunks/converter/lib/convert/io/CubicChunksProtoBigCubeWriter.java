@@ -38,6 +38,7 @@ import cubicchunks.regionlib.lib.ExtRegion;
 import cubicchunks.regionlib.lib.provider.SimpleRegionProvider;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
@@ -48,6 +49,9 @@ public class CubicChunksProtoBigCubeWriter  implements ChunkDataWriter<CubicChun
 
     private final Path dstPath;
     private final Map<Dimension, SaveCubeColumns> saves = new ConcurrentHashMap<>();
+    // the cube region provider of each save, cubes are written to its regions directly when they are MemoryWriteRegions,
+    // so that their parts don't have to be concatenated
+    private final Map<Dimension, RWLockingCachedRegionProvider<EntryLocation3D>> cubeRegions = new ConcurrentHashMap<>();
 
     public CubicChunksProtoBigCubeWriter(Path dstPath) {
         this.dstPath = dstPath;
@@ -60,11 +64,34 @@ public class CubicChunksProtoBigCubeWriter  implements ChunkDataWriter<CubicChun
         if (data.getColumnData() != null) {
             save.save2d(new EntryLocation2D(pos.getEntryX(), pos.getEntryZ()), data.getColumnData());
         }
-        if (data.getCubeData() != null) {
-            save.save3d(pos, data.getCubeData());
+        ByteBuffer[] cubeData = data.getCubeData();
+        if (cubeData != null) {
+            boolean written = cubeRegions.get(data.getDimension()).fromRegion(pos, region -> {
+                if (!(region instanceof MemoryWriteRegion)) {
+                    return false;
+                }
+                ((MemoryWriteRegion<EntryLocation3D>) region).writeValue(pos, cubeData);
+                return true;
+            });
+            if (!written) {
+                save.save3d(pos, concat(cubeData));
+            }
         }
     }
 
+    private static ByteBuffer concat(ByteBuffer[] parts) {
+        int size = 0;
+        for (ByteBuffer part : parts) {
+            size += part.remaining();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (ByteBuffer part : parts) {
+            buffer.put(part.duplicate());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
     private SaveCubeColumns initSave(Dimension dim) {
         try {
             Path path = dstPath.resolve(dim.getDirectory());
@@ -95,18 +122,20 @@ public class CubicChunksProtoBigCubeWriter  implements ChunkDataWriter<CubicChun
                                     (dir, key) -> Files.exists(dir.resolveSibling(key.getRegionKey().getName() + ".ext"))
                             )
                     ));
+            RWLockingCachedRegionProvider<EntryLocation3D> cubeRegionProvider = new RWLockingCachedRegionProvider<>(
+                    new SimpleRegionProvider<>(new EntryLocation3D.Provider(), part3d, (keyProv, r) ->
+                            new MemoryWriteRegion.Builder<EntryLocation3D>()
+                                    .setDirectory(part3d)
+                                    .setRegionKey(r)
+                                    .setKeyProvider(keyProv)
+                                    .setSectorSize(512)
+                                    .build(),
+                            (file, key) -> Files.exists(file)
+                    )
+            );
+            cubeRegions.put(dim, cubeRegionProvider);
             SaveSection3D section3d = new SaveSection3D(
-                    new RWLockingCachedRegionProvider<>(
-                            new SimpleRegionProvider<>(new EntryLocation3D.Provider(), part3d, (keyProv, r) ->
-                                    new MemoryWriteRegion.Builder<EntryLocation3D>()
-                                            .setDirectory(part3d)
-                                            .setRegionKey(r)
-                                            .setKeyProvider(keyProv)
-                                            .setSectorSize(512)
-                                            .build(),
-                                    (file, key) -> Files.exists(file)
-                            )
-                    ),
+                    cubeRegionProvider,
                     new RWLockingCachedRegionProvider<>(
                             new SimpleRegionProvider<>(new EntryLocation3D.Provider(), part3d,
                                     (keyProvider, regionKey) -> new ExtRegion<>(part3d, Collections.emptyList(), keyProvider, regionKey),
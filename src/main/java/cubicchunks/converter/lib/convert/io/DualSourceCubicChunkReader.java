@@ -26,6 +26,7 @@ package cubicchunks.converter.lib.convert.io;
 import static cubicchunks.converter.lib.util.Utils.interruptibleConsumer;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import cubicchunks.converter.lib.Dimension;
 import cubicchunks.converter.lib.conf.ConverterConfig;
@@ -66,8 +67,14 @@ import java.util.function.Predicate;
 
 public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCubicChunksColumnData, DualSourceSaveCubeColumns> {
 
+    /**
+     * Config key of the fallback world. Cubes and columns missing in the source world are read from it.
+     */
+    public static final String SECOND_SOURCE_KEY = "secondSrcWorld";
+
     private final CompletableFuture<ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
+    private final ReaderPool readerPool = new ReaderPool("Dual source chunk reader");
     private static final Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation2D>>, List<IRegionProvider<EntryLocation2D>>>> providers2d = new WeakHashMap<>();
     private static final Map<DualSourceSaveCubeColumns, HashMap.SimpleEntry<List<IRegionProvider<EntryLocation3D>>, List<IRegionProvider<EntryLocation3D>>>> providers3d = new WeakHashMap<>();
 
@@ -92,6 +99,17 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
             regionBoundingBoxes = null;
     }
 
+    /**
+     * Creates a reader with {@code srcDir} as the priority world, and {@link #SECOND_SOURCE_KEY} from the config as
+     * the fallback world.
+     */
+    public static DualSourceCubicChunkReader create(Path srcDir, ConverterConfig config) {
+        if (!config.hasValue(SECOND_SOURCE_KEY)) {
+            throw new IllegalArgumentException("Merging requires a second source world");
+        }
+        return new DualSourceCubicChunkReader(srcDir, (Path) config.getValue(SECOND_SOURCE_KEY), config);
+    }
+
     private static Path getDimensionPath(Dimension d, Path worldDir) {
         if (!d.getDirectory().isEmpty()) {
             worldDir = worldDir.resolve(d.getDirectory());
@@ -263,6 +281,8 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
                 return; // counting interrupted
             }
             doLoadChunks(consumer, list, errorHandler);
+        } catch (UncheckedInterruptedException ex) {
+            // interrupted, do nothing
         } catch (ExecutionException e) {
             errorHandler.test(e);
         }
@@ -277,31 +297,43 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
             DualSourceSaveCubeColumns save = saves.get(dim);
             SaveCubeColumns prioritySave = save.getPrioritySave();
             SaveCubeColumns fallbackSave = save.getFallbackSave();
-            dimEntry.getValue().parallelStream().forEach(chunksEntry -> {
+            List<IRegionProvider<EntryLocation2D>> priorityColumnRegions = providers2d.get(save).getKey();
+            List<IRegionProvider<EntryLocation3D>> priorityCubeRegions = providers3d.get(save).getKey();
+            IRegionProvider<EntryLocation3D> fallbackCubeRegions = providers3d.get(save).getValue().get(0);
+            readerPool.forEachPartitioned(dimEntry.getValue(), entry -> ReaderPool.columnRegionKey(entry.getKey().getEntryX(), entry.getKey().getEntryZ()), chunksEntry -> {
                 if (Thread.interrupted()) {
                     return;
                 }
                 try {
                     EntryLocation2D pos2d = chunksEntry.getKey();
                     IntArrayList yCoords = chunksEntry.getValue();
-                    ByteBuffer column = prioritySave.load(pos2d, true).orElse(fallbackSave.load(pos2d, true).orElse(null));
-                    Map<Integer, ByteBuffer> priorityCubes = new HashMap<>();
-                    Map<Integer, ByteBuffer> fallbackCubes = new HashMap<>();
-
-                    for (IntCursor yCursor : yCoords) {
-                        if (Thread.interrupted()) {
-                            return;
+                    // check region headers first, and only read data from the source that is used
+                    ByteBuffer column = CubeBatchLoader.hasEntry(priorityColumnRegions, pos2d)
+                        ? prioritySave.load(pos2d, true).orElse(null)
+                        : fallbackSave.load(pos2d, true).orElse(null);
+
+                    IntArrayList priorityYCoords = CubeBatchLoader.findExistingCubes(priorityCubeRegions, pos2d.getEntryX(), pos2d.getEntryZ(), yCoords);
+                    IntArrayList fallbackYCoords = new IntArrayList(yCoords.size() - priorityYCoords.size());
+                    if (priorityYCoords.size() != yCoords.size()) {
+                        IntHashSet inPriority = new IntHashSet(priorityYCoords);
+                        for (IntCursor yCursor : yCoords) {
+                            if (!inPriority.contains(yCursor.value)) {
+                                fallbackYCoords.add(yCursor.value);
+                            }
                         }
-                        int y = yCursor.value;
-                        ByteBuffer priorityCube = prioritySave.load(new EntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ()), true).orElse(null);
-                        ByteBuffer fallbackCube = fallbackSave.load(new EntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ()), true).orElse(null);
-
-                        if(priorityCube == null && fallbackCube == null)
-                            throw new IllegalStateException("Expected cube at " + pos2d + " at y=" + y + " in dimension " + dim);
-
-                        priorityCubes.put(y, priorityCube);
-                        fallbackCubes.put(y, fallbackCube);
                     }
+                    if (Thread.interrupted()) {
+                        return;
+                    }
+                    Map<Integer, ByteBuffer> priorityCubes = CubeBatchLoader.loadCubes(prioritySave, priorityCubeRegions.get(0),
+                        pos2d.getEntryX(), pos2d.getEntryZ(), priorityYCoords);
+                    Map<Integer, ByteBuffer> fallbackCubes = fallbackYCoords.isEmpty()
+                        ? new HashMap<>()
+                        : CubeBatchLoader.loadCubes(fallbackSave, fallbackCubeRegions, pos2d.getEntryX(), pos2d.getEntryZ(), fallbackYCoords);
+
+                    // the region headers listed these cubes, so each of them must have been loaded
+                    checkCubesLoaded(priorityYCoords, priorityCubes, pos2d, dim);
+                    checkCubesLoaded(fallbackYCoords, fallbackCubes, pos2d, dim);
                     DualSourceCubicChunksColumnData data = new DualSourceCubicChunksColumnData(dim, pos2d, column, priorityCubes, fallbackCubes);
                     consumer.accept(data);
                 } catch (IOException ex) {
@@ -311,9 +343,18 @@ public class DualSourceCubicChunkReader extends BaseMinecraftReader<DualSourceCu
         }
     }
 
+    private static void checkCubesLoaded(IntArrayList yCoords, Map<Integer, ByteBuffer> cubes, EntryLocation2D pos2d, Dimension dim) {
+        for (IntCursor yCursor : yCoords) {
+            if (!cubes.containsKey(yCursor.value)) {
+                throw new IllegalStateException("Expected cube at " + pos2d + " at y=" + yCursor.value + " in dimension " + dim);
+            }
+        }
+    }
+
     @Override
     public void stop() {
         loadThread.interrupt();
+        readerPool.cancel();
     }
 
     private static DualSourceSaveCubeColumns createDualSave(Path priorityPath, Path fallbackPath) {
@@ -28,6 +28,7 @@ import com.carrotsearch.hppc.cursors.IntCursor;
 import cubicchunks.converter.lib.Dimension;
 import cubicchunks.converter.lib.Dimensions;
 import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.convert.cc2ccrelocating.IncrementalRelocation;
 import cubicchunks.converter.lib.convert.data.PriorityCubicChunksColumnData;
 import cubicchunks.converter.lib.util.*;
 import cubicchunks.converter.lib.util.edittask.EditTask;
@@ -54,21 +55,28 @@ import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import javax.annotation.Nullable;
+
 import static cubicchunks.converter.lib.util.Utils.interruptibleConsumer;
 
 public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicChunksColumnData, SaveCubeColumns> {
 
     private final CompletableFuture<ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
+    private final ReaderPool readerPool = new ReaderPool("Priority chunk reader");
     private static final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation2D>>> providers2d = new WeakHashMap<>();
     private static final Map<SaveCubeColumns, List<IRegionProvider<EntryLocation3D>>> providers3d = new WeakHashMap<>();
 
     private final Map<String, List<BoundingBox>> regionBoundingBoxes = new HashMap<>();
     private final Map<String, List<BoundingBox>> createIfMissingBoxes = new HashMap<>();
+    // shared with the converter, which prepares it before chunks are counted
+    @Nullable private final IncrementalRelocation incremental;
 
     public PriorityCubicChunkReader(Path srcDir, ConverterConfig config) {
         super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path)) : null);
         loadThread = Thread.currentThread();
+        this.incremental = config.hasValue(IncrementalRelocation.CONFIG_KEY) ?
+                (IncrementalRelocation) config.getValue(IncrementalRelocation.CONFIG_KEY) : null;
         if(config.hasValue("relocations")) {
             @SuppressWarnings("unchecked") List<EditTask> tasks = (List<EditTask>) config.getValue("relocations");
 
@@ -161,6 +169,9 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
                             } else {
                                 filtered = false;
                             }
+                            if (incremental != null && !incremental.isInputNeeded(dim.getDirectory(), regionPos.getX() >> 1, regionPos.getZ() >> 1)) {
+                                filtered = true;
+                            }
                             if(!filtered) {
                                 reg.forEachKey(addFromDisk);
                                 reg.close();
@@ -184,6 +195,9 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
                         } else {
                             filtered = false;
                         }
+                        if (incremental != null && !incremental.isInputNeeded(dim.getDirectory(), regionPos.getX() >> 1, regionPos.getZ() >> 1)) {
+                            filtered = true;
+                        }
                         if(filtered) {
                             return;
                         }
@@ -207,6 +221,10 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
             }
 
             for (Vector3i vector3i : toCreateIfMissing) {
+                if (incremental != null && !incremental.isInputNeeded(dim.getDirectory(),
+                        IncrementalRelocation.areaOfCube(vector3i.getX()), IncrementalRelocation.areaOfCube(vector3i.getZ()))) {
+                    continue;
+                }
                 addToMap.accept(new EntryLocation3D(vector3i.getX(), vector3i.getY(), vector3i.getZ()));
             }
         }
@@ -220,6 +238,8 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
                 return; // counting interrupted
             }
             doLoadChunks(consumer, list);
+        } catch (UncheckedInterruptedException ex) {
+            // interrupted, do nothing
         } catch (ExecutionException e) {
             throw new RuntimeException(e);
         }
@@ -232,7 +252,8 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
             }
             Dimension dim = dimEntry.getKey();
             SaveCubeColumns save = saves.get(dim);
-            dimEntry.getValue().parallelStream().forEach(chunksEntry -> {
+            IRegionProvider<EntryLocation3D> cubeRegions = providers3d.get(save).get(0);
+            readerPool.forEachPartitioned(dimEntry.getValue(), entry -> ReaderPool.columnRegionKey(entry.getKey().getEntryX(), entry.getKey().getEntryZ()), chunksEntry -> {
                 if (Thread.interrupted()) {
                     return;
                 }
@@ -240,14 +261,17 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
                     EntryLocation2D pos2d = chunksEntry.getKey();
                     IntArrayList yCoords = chunksEntry.getValue();
                     ByteBuffer column = save.load(pos2d, true).orElse(null);
+                    Map<Integer, ByteBuffer> loaded = CubeBatchLoader.loadCubes(save, cubeRegions, pos2d.getEntryX(), pos2d.getEntryZ(), yCoords);
                     Map<Integer, ImmutablePair<Long, ByteBuffer>> cubes = new HashMap<>();
                     for (IntCursor yCursor : yCoords) {
                         if (Thread.interrupted()) {
                             return;
                         }
                         int y = yCursor.value;
-                        EntryLocation3D location = new EntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ());
-                        ByteBuffer cube = save.load(location, true).orElse(Utils.createAirCubeBuffer(location));
+                        ByteBuffer cube = loaded.get(y);
+                        if (cube == null) {
+                            cube = Utils.createAirCubeBuffer(new EntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ()));
+                        }
                         cubes.put(y, new ImmutablePair<>(0L, cube));
                     }
                     PriorityCubicChunksColumnData data = new PriorityCubicChunksColumnData(dim, pos2d, new ImmutablePair<>(0L, column), cubes, true);
@@ -261,6 +285,7 @@ public class PriorityCubicChunkReader extends BaseMinecraftReader<PriorityCubicC
 
     @Override public void stop() {
         loadThread.interrupt();
+        readerPool.cancel();
     }
 
     private static SaveCubeColumns createSave(Path path) {
@@ -0,0 +1,209 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.io;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import cubicchunks.converter.lib.util.IOExecutors;
+import cubicchunks.converter.lib.util.UncheckedInterruptedException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nullable;
+
+/**
+ * Loads chunks for a reader on its own threads, instead of the common ForkJoinPool.
+ * <p>
+ * Work is split into partitions, usually one per region file. A partition is loaded by a single thread in the order
+ * the chunks were given, so each region is read by one thread at a time, and partitions are started in the order of
+ * their first chunk. The amount of partitions loaded at once can be set with the {@value #THREADS_PROPERTY} system
+ * property, and defaults to {@link IOExecutors#maxConcurrency()}. A partition may hold a whole region file in memory,
+ * and that isn't covered by the memory budget of the converter.
+ * <p>
+ * {@link #cancel()} interrupts all loading threads, it's meant to be called from {@link ChunkDataReader#stop()}.
+ */
+public class ReaderPool {
+
+    public static final String THREADS_PROPERTY = "cubicchunks.converter.readerThreads";
+
+    private final String name;
+    private volatile boolean cancelled;
+    @Nullable private volatile ExecutorService executor;
+
+    public ReaderPool(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs the action for all items, and waits until all of them finish.
+     * <p>
+     * If an action throws, no more actions are started and the exception is rethrown once the running ones finish.
+     * If the pool is cancelled or the calling thread is interrupted, the loading threads are interrupted and
+     * {@link UncheckedInterruptedException} is thrown.
+     *
+     * @param partitionKey key of the partition (region) of an item
+     */
+    public <T> void forEachPartitioned(Collection<T> items, ToLongFunction<? super T> partitionKey, Consumer<? super T> action) {
+        forEachPartition(items, partitionKey, partition -> {
+            for (T item : partition) {
+                if (cancelled) {
+                    return;
+                }
+                action.accept(item);
+            }
+        });
+    }
+
+    /**
+     * Like {@link #forEachPartitioned(Collection, ToLongFunction, Consumer)}, but the action gets a whole partition at
+     * once, so it can keep per-region state, like open region files, while loading it.
+     */
+    public <T> void forEachPartition(Collection<T> items, ToLongFunction<? super T> partitionKey, Consumer<? super List<T>> action) {
+        List<List<T>> partitions = partition(items, partitionKey);
+
+        int concurrency = concurrency();
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = IOExecutors.newExecutor(name, concurrency);
+        this.executor = executor;
+        try {
+            for (List<T> partition : partitions) {
+                if (cancelled) {
+                    throw new InterruptedException();
+                }
+                permits.acquire();
+                if (failure.get() != null) {
+                    permits.release();
+                    break;
+                }
+                try {
+                    executor.execute(() -> {
+                        try {
+                            if (!cancelled && failure.get() == null) {
+                                action.accept(partition);
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // cancelled concurrently
+                    permits.release();
+                    throw new InterruptedException();
+                }
+            }
+            // all permits are back once all the partitions finished
+            permits.acquire(concurrency);
+            if (cancelled) {
+                throw new InterruptedException();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            throw new UncheckedInterruptedException();
+        } finally {
+            executor.shutdown();
+            this.executor = null;
+        }
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Stops loading as soon as possible. Threads blocked on IO or waiting for the converter are interrupted.
+     */
+    public void cancel() {
+        cancelled = true;
+        ExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private int concurrency() {
+        String value = System.getProperty(THREADS_PROPERTY);
+        if (value != null) {
+            try {
+                int threads = Integer.parseInt(value);
+                if (threads > 0) {
+                    return threads;
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            System.out.println("Invalid " + THREADS_PROPERTY + " value " + value + ", using default");
+        }
+        return IOExecutors.maxConcurrency();
+    }
+
+    private static <T> List<List<T>> partition(Collection<T> items, ToLongFunction<? super T> partitionKey) {
+        LongIntHashMap indexes = new LongIntHashMap();
+        List<List<T>> partitions = new ArrayList<>();
+        for (T item : items) {
+            long key = partitionKey.applyAsLong(item);
+            int idx = indexes.getOrDefault(key, -1);
+            if (idx < 0) {
+                idx = partitions.size();
+                indexes.put(key, idx);
+                partitions.add(new ArrayList<>());
+            }
+            partitions.get(idx).add(item);
+        }
+        return partitions;
+    }
+
+    /**
+     * @return partition key of a region2d region containing the given column
+     */
+    public static long columnRegionKey(int columnX, int columnZ) {
+        return ((long) (columnX >> 5) << 32) | ((columnZ >> 5) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return partition key of a region3d region containing the given 16^3 cube
+     */
+    public static long cubeRegionKey(int cubeX, int cubeY, int cubeZ) {
+        return ((long) (cubeX >> 4) & 0x1FFFFF) << 42 | ((long) (cubeY >> 4) & 0x1FFFFF) << 21 | ((long) (cubeZ >> 4) & 0x1FFFFF);
+    }
+}
@@ -39,6 +39,7 @@ import cubicchunks.regionlib.impl.EntryLocation3D;
 import cubicchunks.regionlib.impl.SaveCubeColumns;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -49,10 +50,13 @@ import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import javax.annotation.Nullable;
+
 public class RobintonChunkReader extends BaseMinecraftReader<RobintonColumnData, RobintonSaveSection> {
 
     private final CompletableFuture<RobintonChunkReader.ChunkList> chunkList = new CompletableFuture<>();
     private final Thread loadThread;
+    private final ReaderPool readerPool = new ReaderPool("Robinton chunk reader");
 
     public RobintonChunkReader(Path srcDir) {
         super(srcDir, (dim, path) -> Files.exists(getDimensionPath(dim, path)) ? createSave(getDimensionPath(dim, path)) : null);
@@ -113,40 +117,58 @@ public class RobintonChunkReader extends BaseMinecraftReader<RobintonColumnData,
             }
             Dimension dim = dimEntry.getKey();
             RobintonSaveSection save = saves.get(dim);
-            for (Map.Entry<EntryLocation2D, IntArrayList> chunksEntry : dimEntry.getValue().entrySet()) {
-                if (Thread.interrupted()) {
-                    return;
-                }
-                EntryLocation2D pos2d = chunksEntry.getKey();
-                IntArrayList yCoords = chunksEntry.getValue();
-                Map<Integer, ByteBuffer> cubes = new ConcurrentHashMap<>();
-                for (IntCursor yCursor : yCoords) {
-                    if (Thread.interrupted()) {
-                        return;
-                    }
-                    int y = yCursor.value;
-                    ByteBuffer cube;
-                    try {
-                        cube = save.load(new RobintonEntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ()), true).orElseThrow(
-                                () -> new IllegalStateException("Expected cube at " + pos2d + " at y=" + y + " in dimension " + dim));
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        if (!errorHandler.test(e)) {
+            readerPool.forEachPartition(dimEntry.getValue().entrySet(),
+                    entry -> ReaderPool.columnRegionKey(entry.getKey().getEntryX(), entry.getKey().getEntryZ()), area -> {
+                try (RobintonSaveSection.AreaReader areaReader = save.openArea()) {
+                    for (Map.Entry<EntryLocation2D, IntArrayList> chunksEntry : area) {
+                        if (Thread.interrupted() || readerPool.isCancelled()) {
                             return;
                         }
-                        continue;
+                        RobintonColumnData data = loadColumn(dim, areaReader, chunksEntry.getKey(), chunksEntry.getValue(), errorHandler);
+                        if (data == null) {
+                            return;
+                        }
+                        consumer.accept(data);
                     }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
 
-                    cubes.put(y, cube);
+    /**
+     * @return the loaded column, or null if loading should stop
+     */
+    @Nullable
+    private RobintonColumnData loadColumn(Dimension dim, RobintonSaveSection.AreaReader areaReader, EntryLocation2D pos2d, IntArrayList yCoords,
+            Predicate<Throwable> errorHandler) {
+        Map<Integer, ByteBuffer> cubes = new ConcurrentHashMap<>();
+        for (IntCursor yCursor : yCoords) {
+            if (Thread.interrupted()) {
+                return null;
+            }
+            int y = yCursor.value;
+            ByteBuffer cube;
+            try {
+                cube = areaReader.load(new RobintonEntryLocation3D(pos2d.getEntryX(), y, pos2d.getEntryZ())).orElseThrow(
+                        () -> new IllegalStateException("Expected cube at " + pos2d + " at y=" + y + " in dimension " + dim));
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (!errorHandler.test(e)) {
+                    throw new UncheckedInterruptedException();
                 }
-                RobintonColumnData data = new RobintonColumnData(dim, pos2d, cubes);
-                consumer.accept(data);
+                continue;
             }
+
+            cubes.put(y, cube);
         }
+        return new RobintonColumnData(dim, pos2d, cubes);
     }
 
     @Override public void stop() {
         loadThread.interrupt();
+        readerPool.cancel();
     }
 
     private static RobintonSaveSection createSave(Path path) {
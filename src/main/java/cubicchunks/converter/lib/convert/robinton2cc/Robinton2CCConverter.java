@@ -26,6 +26,8 @@ package cubicchunks.converter.lib.convert.robinton2cc;
 import cubicchunks.converter.lib.convert.ChunkDataConverter;
 import cubicchunks.converter.lib.convert.data.CubicChunksColumnData;
 import cubicchunks.converter.lib.convert.data.RobintonColumnData;
+import cubicchunks.converter.lib.util.EmptyCubeTemplate;
+import cubicchunks.regionlib.impl.EntryLocation2D;
 import net.kyori.nbt.ByteArrayTag;
 import net.kyori.nbt.CompoundTag;
 import net.kyori.nbt.IntArrayTag;
@@ -49,18 +51,38 @@ import java.util.zip.InflaterInputStream;
 
 public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnData, CubicChunksColumnData> {
 
+    // index in the new cube -> index in the old cube
+    // current: yyyy zzzz xxxx
+    // old:     xxxx zzzz yyyy
+    private static final short[] SWIZZLE = new short[4096];
+    // all empty Robinton cubes convert to the same cube, only the position differs
+    private static final EmptyCubeTemplate EMPTY_CUBE = new EmptyCubeTemplate(encodeEmptyCube());
+
+    static {
+        for (int i = 0; i < 4096; i++) {
+            int x = i & 15;
+            int y = i >> 8 & 15;
+            int z = i >> 4 & 15;
+            SWIZZLE[i] = (short) (y | z << 4 | x << 8);
+        }
+    }
+
     @Override public Set<CubicChunksColumnData> convert(RobintonColumnData input) {
         try {
             Map<Integer, ByteBuffer> newData = new HashMap<>();
+            // each cube is encoded before the next one is converted, so its section arrays can be reused
+            SectionBuffers buffers = new SectionBuffers();
             for (int y : input.getCubeData().keySet()) {
                 ByteBuffer buf = input.getCubeData().get(y);
                 if (buf == RobintonSaveSection.EMPTY_BUFFER) {
-                    newData.put(y, makeEmpty(input.getPosition().getEntryX(), y, input.getPosition().getEntryZ()));
+                    EntryLocation2D pos = input.getPosition();
+                    newData.put(y, EMPTY_CUBE.create(pos.getEntryX(), y, pos.getEntryZ()));
+                    continue;
                 }
                 CompoundTag tag = readCompressed(buf);
 
                 CompoundTag oldLevel = tag.getCompound("Level");
-                CompoundTag newLevel = convertCube(input, oldLevel, y);
+                CompoundTag newLevel = convertCube(input, oldLevel, y, buffers);
 
                 CompoundTag newTag = new CompoundTag();
                 newTag.put("Level", newLevel);
@@ -74,13 +96,13 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
         }
     }
 
-    private ByteBuffer makeEmpty(int x, int y, int z) throws IOException {
+    private static byte[] encodeEmptyCube() {
         CompoundTag level = new CompoundTag();
 
         level.putInt("v", 1);
-        level.putInt("x", x);
-        level.putInt("y", y);
-        level.putInt("z", z);
+        level.putInt("x", 0);
+        level.putInt("y", 0);
+        level.putInt("z", 0);
         // some old worlds don't appear to have this flag, and populating those chunks again causes weird effects
         level.putBoolean("populated", true);
         level.putBoolean("fullyPopulated", true);
@@ -93,10 +115,16 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
         CompoundTag root = new CompoundTag();
         root.put("Level", level);
 
-        return writeCompressed(root);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            TagIO.writeOutputStream(TagTypeMaps.ROBINTON, root, bytes);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new Error("Writing known NBT to a byte array shouldn't throw IOException", e);
+        }
     }
 
-    private CompoundTag convertCube(RobintonColumnData input, CompoundTag oldLevel, int y) {
+    private CompoundTag convertCube(RobintonColumnData input, CompoundTag oldLevel, int y, SectionBuffers buffers) {
         CompoundTag newLevel = new CompoundTag();
         /*
          * Robinton's NBT:
@@ -153,10 +181,14 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
 
         CompoundTag section = new CompoundTag();
         {
-            section.put("Blocks", flipXYFull(oldLevel.getByteArray("Blocks")));
-            section.put("Data", flipXYNibble(oldLevel.getByteArray("Data")));
-            section.put("BlockLight", flipXYNibble(oldLevel.getByteArray("BlockLight")));
-            section.put("SkyLight", flipXYNibble(oldLevel.getByteArray("SkyLight")));
+            swizzleFull(oldLevel.getByteArray("Blocks"), buffers.blocks);
+            swizzleNibble(oldLevel.getByteArray("Data"), buffers.data);
+            swizzleNibble(oldLevel.getByteArray("BlockLight"), buffers.blockLight);
+            swizzleNibble(oldLevel.getByteArray("SkyLight"), buffers.skyLight);
+            section.put("Blocks", new ByteArrayTag(buffers.blocks));
+            section.put("Data", new ByteArrayTag(buffers.data));
+            section.put("BlockLight", new ByteArrayTag(buffers.blockLight));
+            section.put("SkyLight", new ByteArrayTag(buffers.skyLight));
         }
         ListTag sections = new ListTag();
         sections.add(section);
@@ -168,43 +200,26 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
         return newLevel;
     }
 
-    private ByteArrayTag flipXYFull(byte[] dataIn) {
-        byte[] newData = new byte[4096];
+    static void swizzleFull(byte[] dataIn, byte[] dataOut) {
         for (int i = 0; i < 4096; i++) {
-            int x = i & 15;
-            int y = i >> 8 & 15;
-            int z = i >> 4 & 15;
-            // current: yyyy zzzz xxxx
-            // old:     xxxx zzzz yyyy
-            int oldIdx = y | z << 4 | x << 8;
-            newData[i] = dataIn[oldIdx];
+            dataOut[i] = dataIn[SWIZZLE[i]];
         }
-        return new ByteArrayTag(newData);
     }
 
-    private ByteArrayTag flipXYNibble(byte[] dataIn) {
-        byte[] newData = new byte[2048];
-        for (int newIdx = 0; newIdx < 4096; newIdx++) {
-            int x = newIdx & 15;
-            int y = newIdx >> 8 & 15;
-            int z = newIdx >> 4 & 15;
-            // current: yyyy zzzz xxxx
-            // old:     xxxx zzzz yyyy
-            int oldIdx = y | z << 4 | x << 8;
-
-            int oldNibbleIdx = oldIdx >>> 1;
-            int nibbleIdx = newIdx >>> 1;
-
-            boolean oldLower = (oldIdx & 1) == 0;
-            boolean newLower = (newIdx & 1) == 0;
-
-            int data = (dataIn[oldNibbleIdx] >>> (oldLower ? 0 : 4)) & 0xF;
-            newData[nibbleIdx] |= data << (newLower ? 0 : 4);
+    static void swizzleNibble(byte[] dataIn, byte[] dataOut) {
+        for (int i = 0; i < 2048; i++) {
+            // the two nibbles of a byte differ only in x, so in the old layout they are in the same half of bytes
+            // 128 apart
+            int oldIdx = SWIZZLE[i << 1];
+            int oldByte = oldIdx >>> 1;
+            int shift = (oldIdx & 1) << 2;
+            int lower = dataIn[oldByte] >>> shift & 0xF;
+            int upper = dataIn[oldByte + 128] >>> shift & 0xF;
+            dataOut[i] = (byte) (lower | upper << 4);
         }
-        return new ByteArrayTag(newData);
     }
 
-    private CompoundTag makeLightingInfo() {
+    private static CompoundTag makeLightingInfo() {
         int[] arr = new int[256];
         Arrays.fill(arr, Integer.MIN_VALUE / 2);
         IntArrayTag heightmap = new IntArrayTag(arr);
@@ -238,4 +253,10 @@ public class Robinton2CCConverter implements ChunkDataConverter<RobintonColumnDa
         return ByteBuffer.wrap(bytes.toByteArray());
     }
 
+    private static class SectionBuffers {
+        final byte[] blocks = new byte[4096];
+        final byte[] data = new byte[2048];
+        final byte[] blockLight = new byte[2048];
+        final byte[] skyLight = new byte[2048];
+    }
 }
@@ -25,20 +25,32 @@ package cubicchunks.converter.lib.convert.robinton2cc;
 
 import cubicchunks.converter.lib.util.RWLockingCachedRegionProvider;
 import cubicchunks.regionlib.api.region.IRegionProvider;
+import cubicchunks.regionlib.api.region.key.RegionKey;
 import cubicchunks.regionlib.api.storage.SaveSection;
 import cubicchunks.regionlib.lib.Region;
 import cubicchunks.regionlib.lib.provider.SharedCachedRegionProvider;
 import cubicchunks.regionlib.lib.provider.SimpleRegionProvider;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
 
 public class RobintonSaveSection extends SaveSection<RobintonSaveSection, RobintonEntryLocation3D> {
 
     public static final Object EMPTY_MARKER = "Empty cube marker";
     public static final ByteBuffer EMPTY_BUFFER = ByteBuffer.wrap(new byte[0]);
+    // every y level of an area is a separate file, this bounds the open files per area being loaded
+    private static final int MAX_OPEN_AREA_REGIONS = 32;
+
+    @Nullable private final Path directory;
 
     /**
      * Creates a 3D save section with a customized IRegionProvider
@@ -46,26 +58,105 @@ public class RobintonSaveSection extends SaveSection<RobintonSaveSection, Robint
      * @param regionProvider The region provider
      */
     public RobintonSaveSection(IRegionProvider<RobintonEntryLocation3D> regionProvider) {
+        this(regionProvider, null);
+    }
+
+    private RobintonSaveSection(IRegionProvider<RobintonEntryLocation3D> regionProvider, @Nullable Path directory) {
         super(Collections.singletonList(regionProvider));
+        this.directory = directory;
     }
 
     public static RobintonSaveSection createAt(Path directory) {
         return new RobintonSaveSection(new RWLockingCachedRegionProvider<>(
-                new SimpleRegionProvider<>(new RobintonEntryLocation3D.Provider(), directory, (keyProv, r) ->
-                        new Region.Builder<RobintonEntryLocation3D>()
-                                .addSpecialSectorMapEntry(EMPTY_MARKER, 0xFFFFFFFF, loc -> EMPTY_BUFFER, RobintonSaveSection::throwingErrorHandler)
-                                .setDirectory(directory)
-                                .setRegionKey(r)
-                                .setKeyProvider(keyProv)
-                                .setSectorSize(256)
-                                .build(),
+                new SimpleRegionProvider<>(new RobintonEntryLocation3D.Provider(), directory,
+                        (keyProv, r) -> createRegion(directory, r),
                         (dir, key) -> Files.exists(dir.resolve(key.getRegionKey().getName()))
                 )
-        ));
+        ), directory);
+    }
+
+    /**
+     * Opens a reader for cubes of a single 32x32 column area. Every region file belongs to exactly one area, so areas
+     * can be loaded in parallel, each by its own thread, without contending for the shared region cache.
+     */
+    public AreaReader openArea() {
+        return new AreaReader();
+    }
+
+    private static Region<RobintonEntryLocation3D> createRegion(Path directory, RegionKey regionKey) throws IOException {
+        return new Region.Builder<RobintonEntryLocation3D>()
+                .addSpecialSectorMapEntry(EMPTY_MARKER, 0xFFFFFFFF, loc -> EMPTY_BUFFER, RobintonSaveSection::throwingErrorHandler)
+                .setDirectory(directory)
+                .setRegionKey(regionKey)
+                .setKeyProvider(new RobintonEntryLocation3D.Provider())
+                .setSectorSize(256)
+                .build();
     }
 
     private static void throwingErrorHandler(RobintonEntryLocation3D loc, ByteBuffer buf) {
         throw new IllegalStateException("Robinton's cubic chunks format doesn't support writing "
                 + "cube data with region header entry 0xFFFFFFFF ");
     }
+
+    /**
+     * Keeps the most recently used regions of one area open until closed. Not thread safe.
+     */
+    public class AreaReader implements Closeable {
+
+        // access order, so that the least recently used region is closed first
+        private final LinkedHashMap<RegionKey, Optional<Region<RobintonEntryLocation3D>>> regions =
+                new LinkedHashMap<>(16, 0.75f, true);
+
+        public Optional<ByteBuffer> load(RobintonEntryLocation3D location) throws IOException {
+            if (directory == null) {
+                return RobintonSaveSection.this.load(location, true);
+            }
+            RegionKey regionKey = location.getRegionKey();
+            Optional<Region<RobintonEntryLocation3D>> region = regions.get(regionKey);
+            if (region == null) {
+                region = Files.exists(directory.resolve(regionKey.getName()))
+                        ? Optional.of(createRegion(directory, regionKey))
+                        : Optional.empty();
+                regions.put(regionKey, region);
+                if (regions.size() > MAX_OPEN_AREA_REGIONS) {
+                    closeEldest();
+                }
+            }
+            if (!region.isPresent()) {
+                return Optional.empty();
+            }
+            return region.get().readValue(location);
+        }
+
+        private void closeEldest() throws IOException {
+            Iterator<Optional<Region<RobintonEntryLocation3D>>> it = regions.values().iterator();
+            Optional<Region<RobintonEntryLocation3D>> eldest = it.next();
+            it.remove();
+            if (eldest.isPresent()) {
+                eldest.get().close();
+            }
+        }
+
+        @Override public void close() throws IOException {
+            IOException exception = null;
+            for (Optional<Region<RobintonEntryLocation3D>> region : regions.values()) {
+                if (!region.isPresent()) {
+                    continue;
+                }
+                try {
+                    region.get().close();
+                } catch (IOException e) {
+                    if (exception == null) {
+                        exception = e;
+                    } else {
+                        exception.addSuppressed(e);
+                    }
+                }
+            }
+            regions.clear();
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
 }
@@ -90,6 +90,11 @@ public class BoundingBox {
                 z >= minPos.getZ() && z <= maxPos.getZ();
     }
 
+    public boolean columnIntersects(BoundingBox other) {
+        return other.minPos.getX() <= maxPos.getX() && other.maxPos.getX() >= minPos.getX() &&
+                other.minPos.getZ() <= maxPos.getZ() && other.maxPos.getZ() >= minPos.getZ();
+    }
+
     public Vector3i getMinPos() {
         return minPos;
     }
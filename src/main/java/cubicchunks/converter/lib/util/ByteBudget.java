@@ -0,0 +1,115 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the amount of bytes held by a pipeline stage. Producers {@link #acquire(long)} before handing data over,
+ * and the consumer {@link #release(long)}s it once the data is no longer referenced.
+ * <p>
+ * The limit can be changed at any time, which allows resizing the stage according to its throughput.
+ */
+public class ByteBudget {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long limit;
+    private long used;
+    private long released;
+
+    public ByteBudget(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Blocks until {@code bytes} fit into the budget. Data larger than the whole limit is let through once nothing
+     * else is in flight, so that a single huge chunk can't stall the conversion.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (used > 0 && used + bytes > limit) {
+                changed.await();
+            }
+            used += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            used -= bytes;
+            released += bytes;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setLimit(long limit) {
+        lock.lock();
+        try {
+            this.limit = limit;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getUsed() {
+        lock.lock();
+        try {
+            return used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return amount of bytes released since the last call, used to measure throughput of the consumer
+     */
+    public long takeReleasedBytes() {
+        lock.lock();
+        try {
+            long value = released;
+            released = 0;
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
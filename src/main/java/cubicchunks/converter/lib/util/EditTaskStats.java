@@ -0,0 +1,133 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single edit task (one line of the relocation config) across the whole conversion.
+ */
+public class EditTaskStats {
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN = allocationMXBean();
+
+    private final String label;
+    private final LongAdder cubesIn = new LongAdder();
+    private final LongAdder cubesOut = new LongAdder();
+    private final LongAdder columnsIn = new LongAdder();
+    private final LongAdder columnsOut = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    public EditTaskStats(String label) {
+        this.label = label;
+    }
+
+    public void recordCube(int outputCubes, long nanos, long allocatedBytes) {
+        cubesIn.increment();
+        cubesOut.add(outputCubes);
+        record(nanos, allocatedBytes);
+    }
+
+    public void recordColumn(int outputColumns, long nanos, long allocatedBytes) {
+        columnsIn.increment();
+        columnsOut.add(outputColumns);
+        record(nanos, allocatedBytes);
+    }
+
+    private void record(long nanos, long allocatedBytes) {
+        this.nanos.add(nanos);
+        if (allocatedBytes > 0) {
+            this.allocatedBytes.add(allocatedBytes);
+        }
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getCubesIn() {
+        return cubesIn.sum();
+    }
+
+    public long getCubesOut() {
+        return cubesOut.sum();
+    }
+
+    public long getColumnsIn() {
+        return columnsIn.sum();
+    }
+
+    public long getColumnsOut() {
+        return columnsOut.sum();
+    }
+
+    public long getNanos() {
+        return nanos.sum();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public String toSummaryLine(long totalNanos) {
+        long n = getNanos();
+        long calls = getCubesIn() + getColumnsIn();
+        return String.format(Locale.ROOT, "%8.1f ms %5.1f%% %8.2f us/call %10.1f MB alloc | cubes %d -> %d, columns %d -> %d | %s",
+            n / (double) TimeUnit.MILLISECONDS.toNanos(1),
+            totalNanos == 0 ? 0 : 100.0 * n / totalNanos,
+            calls == 0 ? 0 : n / (double) calls / TimeUnit.MICROSECONDS.toNanos(1),
+            getAllocatedBytes() / (1024.0 * 1024.0),
+            getCubesIn(), getCubesOut(), getColumnsIn(), getColumnsOut(), label);
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if the JVM can't measure it
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (ALLOCATION_MX_BEAN == null) {
+            return -1;
+        }
+        return ALLOCATION_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!sunBean.isThreadAllocatedMemoryEnabled()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        return sunBean;
+    }
+}
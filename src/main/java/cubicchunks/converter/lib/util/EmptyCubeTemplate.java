@@ -0,0 +1,169 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import com.flowpowered.nbt.stream.NBTOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An empty cube encoded once, gzip compressed the same way as {@link Utils#writeCompressed} without prefix.
+ * <p>
+ * The coordinates are the first tags of a cube, so the uncompressed NBT is split right after them. The short part
+ * with the coordinates is stored in an uncompressed deflate block, and the rest of the cube is deflated once and shared
+ * by all cubes made from the template. Making a cube only copies the template and patches the coordinates.
+ */
+public class EmptyCubeTemplate {
+
+    /**
+     * Template of {@link Utils#emptyCube(int, int, int)}
+     */
+    public static final EmptyCubeTemplate DEFAULT = new EmptyCubeTemplate(encodeDefault());
+
+    private final byte[] header;
+    private final int xOffset;
+    private final int yOffset;
+    private final int zOffset;
+    private final byte[] compressedRest;
+    private final byte[] rest;
+
+    /**
+     * @param nbt uncompressed NBT of the cube, with int tags named {@code x}, {@code y} and {@code z} for the cube
+     * position. Their values are replaced in every created cube.
+     */
+    public EmptyCubeTemplate(byte[] nbt) {
+        xOffset = intTagValueOffset(nbt, "x");
+        yOffset = intTagValueOffset(nbt, "y");
+        zOffset = intTagValueOffset(nbt, "z");
+        int split = Math.max(xOffset, Math.max(yOffset, zOffset)) + Integer.BYTES;
+        header = Arrays.copyOf(nbt, split);
+        rest = Arrays.copyOfRange(nbt, split, nbt.length);
+        compressedRest = deflate(rest);
+    }
+
+    private static byte[] encodeDefault() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (NBTOutputStream out = new NBTOutputStream(bytes, false)) {
+                out.writeTag(Utils.emptyCube(0, 0, 0));
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new Error("Writing known NBT to a byte array shouldn't throw IOException", e);
+        }
+    }
+
+    /**
+     * @return gzip compressed cube at the given cube coordinates
+     */
+    public ByteBuffer create(int x, int y, int z) {
+        byte[] out = new byte[Utils.GZIP_HEADER.length + 5 + header.length + compressedRest.length + 8];
+        System.arraycopy(Utils.GZIP_HEADER, 0, out, 0, Utils.GZIP_HEADER.length);
+        int pos = Utils.GZIP_HEADER.length;
+
+        // non-final stored block, it ends byte aligned so the compressed rest can follow directly
+        out[pos++] = 0;
+        pos = putShortLE(out, pos, header.length);
+        pos = putShortLE(out, pos, ~header.length);
+        int headerStart = pos;
+        System.arraycopy(header, 0, out, headerStart, header.length);
+        putIntBE(out, headerStart + xOffset, x);
+        putIntBE(out, headerStart + yOffset, y);
+        putIntBE(out, headerStart + zOffset, z);
+        pos += header.length;
+
+        System.arraycopy(compressedRest, 0, out, pos, compressedRest.length);
+        pos += compressedRest.length;
+
+        CRC32 crc = new CRC32();
+        crc.update(out, headerStart, header.length);
+        crc.update(rest);
+        pos = putIntLE(out, pos, (int) crc.getValue());
+        putIntLE(out, pos, header.length + rest.length);
+        return ByteBuffer.wrap(out);
+    }
+
+    // NBT int tag: type id 3, name length, name, big endian value
+    private static int intTagValueOffset(byte[] nbt, String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] tagStart = new byte[3 + nameBytes.length];
+        tagStart[0] = 3;
+        tagStart[1] = (byte) (nameBytes.length >>> 8);
+        tagStart[2] = (byte) nameBytes.length;
+        System.arraycopy(nameBytes, 0, tagStart, 3, nameBytes.length);
+        outer:
+        for (int i = 0; i <= nbt.length - tagStart.length - Integer.BYTES; i++) {
+            for (int j = 0; j < tagStart.length; j++) {
+                if (nbt[i + j] != tagStart[j]) {
+                    continue outer;
+                }
+            }
+            return i + tagStart.length;
+        }
+        throw new IllegalStateException("Int tag " + name + " not found in empty cube");
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int putShortLE(byte[] out, int pos, int value) {
+        out[pos] = (byte) value;
+        out[pos + 1] = (byte) (value >>> 8);
+        return pos + 2;
+    }
+
+    private static int putIntLE(byte[] out, int pos, int value) {
+        out[pos] = (byte) value;
+        out[pos + 1] = (byte) (value >>> 8);
+        out[pos + 2] = (byte) (value >>> 16);
+        out[pos + 3] = (byte) (value >>> 24);
+        return pos + 4;
+    }
+
+    private static void putIntBE(byte[] out, int pos, int value) {
+        out[pos] = (byte) (value >>> 24);
+        out[pos + 1] = (byte) (value >>> 16);
+        out[pos + 2] = (byte) (value >>> 8);
+        out[pos + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Copies the non-chunk files of a world on an {@link IOExecutors} executor, many files at once.
+ * <p>
+ * The source tree is walked on a thread of its own, and files are queued as soon as they are found, so the copy runs
+ * while chunks are being converted. File contents
+ * are copied with {@link FileChannel#transferTo}, which lets the OS copy them without going through the java heap.
+ * With the {@value #HARDLINK_PROPERTY} system property set to {@code true}, files are hard linked instead when the
+ * file system allows it. This is opt-in, as the source and destination world then share the files, and changes to one
+ * show up in the other.
+ */
+public class FileCopier implements AutoCloseable {
+
+    public static final String HARDLINK_PROPERTY = "cubicchunks.converter.hardlinkFiles";
+
+    private final ExecutorService executor;
+    private final ExecutorService walker;
+    private final Semaphore inFlight;
+    private final boolean hardlink = Boolean.getBoolean(HARDLINK_PROPERTY);
+    private final Runnable onProgress;
+
+    private final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong copiedBytes = new AtomicLong();
+
+    /**
+     * @param onProgress called from the copying threads whenever more bytes were copied
+     */
+    public FileCopier(Runnable onProgress) {
+        this.executor = IOExecutors.newExecutor("File copy");
+        this.walker = IOExecutors.newExecutor("File copy walker", 1);
+        this.inFlight = new Semaphore(IOExecutors.maxConcurrency());
+        this.onProgress = onProgress;
+    }
+
+    /**
+     * Queues copying the contents of {@code srcDir} into {@code dstDir}, skipping files and directories matching
+     * {@code excluded}, and returns right away. Only {@code dstDir} itself is created before this method returns, the
+     * rest of the tree is walked and copied in the background. Failures are thrown from {@link #await()}.
+     */
+    public void copyEverythingExcept(Path srcDir, Path dstDir, Predicate<Path> excluded) throws IOException {
+        Utils.createDirectories(dstDir);
+        boolean canCopyAttributes = Utils.detectCanCopyAttributesForWSL(dstDir);
+        // the walk waits for free copy slots, so it must not block the caller
+        pending.add(walker.submit(() -> {
+            try {
+                walk(srcDir, dstDir, excluded, canCopyAttributes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    private void walk(Path srcDir, Path dstDir, Predicate<Path> excluded, boolean canCopyAttributes) throws IOException {
+        Files.walkFileTree(srcDir, new SimpleFileVisitor<Path>() {
+            @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(srcDir) && excluded.test(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Utils.createDirectories(dstDir.resolve(srcDir.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (excluded.test(file)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                // TODO: handle symlinks
+                if (!Files.isRegularFile(file)) {
+                    throw new UnsupportedOperationException("Can't copy " + file + ", not a regular file");
+                }
+                submit(file, dstDir.resolve(srcDir.relativize(file)), canCopyAttributes);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Waits until all queued directories are walked and all of their files are copied.
+     *
+     * @throws IOException if copying any of the files failed
+     */
+    public void await() throws IOException {
+        Future<?> future;
+        while ((future = pending.poll()) != null) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedInterruptedException();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * @return size of all files queued so far, in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public long getCopiedBytes() {
+        return copiedBytes.get();
+    }
+
+    @Override public void close() {
+        walker.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private void submit(Path src, Path dst, boolean canCopyAttributes) throws IOException {
+        totalBytes.addAndGet(Files.size(src));
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedInterruptedException();
+        }
+        try {
+            pending.add(executor.submit(() -> {
+                try {
+                    copyFile(src, dst, canCopyAttributes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void copyFile(Path src, Path dst, boolean canCopyAttributes) throws IOException {
+        if (hardlink && tryLink(src, dst)) {
+            copiedBytes.addAndGet(Files.size(src));
+            onProgress.run();
+            return;
+        }
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dst, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long copied = in.transferTo(position, size - position, out);
+                if (copied <= 0) {
+                    break; // the file got truncated while copying
+                }
+                position += copied;
+                copiedBytes.addAndGet(copied);
+                onProgress.run();
+            }
+        }
+        if (canCopyAttributes) {
+            copyAttributes(src, dst);
+        }
+    }
+
+    /**
+     * Copies what {@link java.nio.file.StandardCopyOption#COPY_ATTRIBUTES} would: the file times, and the POSIX
+     * permissions or DOS attributes if both file systems have them. The times are set first, as a read only DOS file
+     * can't be changed anymore.
+     */
+    private static void copyAttributes(Path src, Path dst) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(src, BasicFileAttributes.class);
+        Files.getFileAttributeView(dst, BasicFileAttributeView.class)
+            .setTimes(attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+
+        PosixFileAttributeView srcPosix = Files.getFileAttributeView(src, PosixFileAttributeView.class);
+        PosixFileAttributeView dstPosix = Files.getFileAttributeView(dst, PosixFileAttributeView.class);
+        if (srcPosix != null && dstPosix != null) {
+            dstPosix.setPermissions(srcPosix.readAttributes().permissions());
+            return;
+        }
+        DosFileAttributeView srcDos = Files.getFileAttributeView(src, DosFileAttributeView.class);
+        DosFileAttributeView dstDos = Files.getFileAttributeView(dst, DosFileAttributeView.class);
+        if (srcDos != null && dstDos != null) {
+            DosFileAttributes dos = srcDos.readAttributes();
+            dstDos.setArchive(dos.isArchive());
+            dstDos.setHidden(dos.isHidden());
+            dstDos.setSystem(dos.isSystem());
+            dstDos.setReadOnly(dos.isReadOnly());
+        }
+    }
+
+    private static boolean tryLink(Path src, Path dst) {
+        try {
+            Files.deleteIfExists(dst);
+            Files.createLink(dst, src);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // different file systems, or links not supported
+            return false;
+        }
+    }
+}
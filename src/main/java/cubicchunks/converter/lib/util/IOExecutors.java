@@ -0,0 +1,66 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking region reads and file copies, so that they don't block the common ForkJoinPool.
+ * <p>
+ * Only blocking IO should run here, decoding and converting chunks is done by the bounded convert pool of
+ * {@link cubicchunks.converter.lib.convert.WorldConverter}. Writes stay on its single IO thread, as writers are not
+ * required to be thread safe.
+ */
+public class IOExecutors {
+
+    private static final int PLATFORM_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * @return maximum amount of IO tasks that should be in flight at once
+     */
+    public static int maxConcurrency() {
+        return PLATFORM_THREADS;
+    }
+
+    /**
+     * Creates a new executor for blocking IO. Its threads are daemon threads, so that a stuck read can't keep the JVM
+     * alive.
+     */
+    public static ExecutorService newExecutor(String name) {
+        return newExecutor(name, PLATFORM_THREADS);
+    }
+
+    public static ExecutorService newExecutor(String name, int threads) {
+        AtomicInteger threadId = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, name + " #" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+}
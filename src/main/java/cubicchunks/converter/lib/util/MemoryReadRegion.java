@@ -45,9 +45,12 @@ import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
 
@@ -58,6 +61,7 @@ public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
     private final IKeyProvider<K> keyProvider;
     private final int keyCount;
     private ByteBuffer fileBuffer;
+    private final ReentrantLock lock = new ReentrantLock();
 
     private MemoryReadRegion(SeekableByteChannel file,
             IntPackedSectorMap<K> sectorMap,
@@ -72,7 +76,7 @@ public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
         this.sectorMap = sectorMap;
     }
 
-    @Override public synchronized void writeValue(K key, ByteBuffer value) throws IOException {
+    @Override public void writeValue(K key, ByteBuffer value) throws IOException {
         throw new UnsupportedOperationException("Writing not supported in this implementation");
     }
 
@@ -91,7 +95,57 @@ public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
     }
 
 
-    @Override public synchronized Optional<ByteBuffer> readValue(K key) throws IOException {
+    @Override public Optional<ByteBuffer> readValue(K key) throws IOException {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            loadFile();
+            // a hack because Optional can't throw checked exceptions
+            try {
+                return sectorMap.trySpecialValue(key)
+                        .map(reader -> Optional.of(reader.apply(key)))
+                        .orElseGet(() -> doReadKey(key, true));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                PipelineMetrics.get().record(PipelineMetrics.READ, System.nanoTime() - start);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads values of all the given keys in a single pass. Unlike {@link #readValue(IKey)}, the values are not copied,
+     * they are slices of the buffer holding the whole region. Holding on to any of them keeps the region data in memory.
+     *
+     * @return values of the keys that exist in this region
+     */
+    public Map<K, ByteBuffer> readValueSlices(Collection<K> keys) throws IOException {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            loadFile();
+            Map<K, ByteBuffer> values = new HashMap<>();
+            try {
+                for (K key : keys) {
+                    sectorMap.trySpecialValue(key)
+                            .map(reader -> Optional.of(reader.apply(key)))
+                            .orElseGet(() -> doReadKey(key, false))
+                            .ifPresent(value -> values.put(key, value));
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                PipelineMetrics.get().record(PipelineMetrics.READ, System.nanoTime() - start);
+            }
+            return values;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void loadFile() throws IOException {
         if (fileBuffer == null) {
             this.fileBuffer = ByteBuffer.allocate((int) file.size());
 
@@ -99,18 +153,11 @@ public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
             file.read(fileBuffer);
             file.close();
             file = null;
-        }
-        // a hack because Optional can't throw checked exceptions
-        try {
-            return sectorMap.trySpecialValue(key)
-                    .map(reader -> Optional.of(reader.apply(key)))
-                    .orElseGet(() -> doReadKey(key));
-        } catch (UncheckedIOException e) {
-            throw e.getCause();
+            PipelineMetrics.get().addBytesRead(fileBuffer.capacity());
         }
     }
 
-    private Optional<ByteBuffer> doReadKey(K key) {
+    private Optional<ByteBuffer> doReadKey(K key, boolean copy) {
         return sectorMap.getEntryLocation(key).flatMap(loc -> {
             try {
                 int sectorOffset = loc.getOffset();
@@ -126,6 +173,9 @@ public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
                 fileBuffer.position(sectorOffset * sectorSize + Integer.BYTES);
                 fileBuffer.limit(sectorOffset * sectorSize + Integer.BYTES + dataLength);
 
+                if (!copy) {
+                    return Optional.of(fileBuffer.slice());
+                }
                 return Optional.of(ByteBuffer.allocate(dataLength).put(fileBuffer));
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
@@ -136,8 +186,13 @@ public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
     /**
      * Returns true if something was stored there before within this region.
      */
-    @Override public synchronized boolean hasValue(K key) {
-        return sectorMap.getEntryLocation(key).isPresent();
+    @Override public boolean hasValue(K key) {
+        lock.lock();
+        try {
+            return sectorMap.getEntryLocation(key).isPresent();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override public void forEachKey(CheckedConsumer<? super K, IOException> cons) throws IOException {
@@ -159,6 +214,7 @@ public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
         if (file != null) {
             file.close();
         }
+        PipelineMetrics.get().regionClosed();
     }
 
     private static int ceilDiv(int x, int y) {
@@ -205,6 +261,7 @@ public class MemoryReadRegion<K extends IKey<K>> implements IRegion<K> {
         public MemoryReadRegion<K> build() throws IOException {
             SeekableByteChannel file = Files.newByteChannel(directory.resolve(regionKey.getName()), CREATE, READ, WRITE);
             IntPackedSectorMap<K> sectorMap = IntPackedSectorMap.readOrCreate(file, keyProvider.getKeyCount(regionKey), specialEntries);
+            PipelineMetrics.get().regionOpened();
             return new MemoryReadRegion<>(file, sectorMap, this.regionKey, keyProvider, this.sectorSize);
         }
     }
@@ -23,8 +23,11 @@
  */
 package cubicchunks.converter.lib.util;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
 
 import cubicchunks.regionlib.api.region.IRegion;
@@ -38,7 +41,9 @@ import cubicchunks.regionlib.util.CheckedConsumer;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -55,23 +60,72 @@ public class MemoryWriteRegion<K extends IKey<K>> implements IRegion<K> {
     private static final int MAX_OFFSET = OFFSET_MASK;
 
     private final SeekableByteChannel file;
+    private final Path path;
     private final int sectorSize;
     private final int keyCount;
+    private final ByteBuffer zeroSector;
     private WriteEntry[] writeEntries;
 
     private MemoryWriteRegion(SeekableByteChannel file,
+            Path path,
             RegionKey regionKey,
             IKeyProvider<K> keyProvider,
             int sectorSize) throws IOException {
         this.keyCount = keyProvider.getKeyCount(regionKey);
         this.file = file;
+        this.path = path;
         this.sectorSize = sectorSize;
+        this.zeroSector = ByteBuffer.allocate(sectorSize);
     }
 
     @Override public synchronized void writeValue(K key, ByteBuffer value) throws IOException {
         if (value == null) {
             return;
         }
+        initWriteEntries();
+        value.position(0);
+        int size = value.remaining();
+        int sizeWithSizeInfo = size + Integer.BYTES;
+        int numSectors = getSectorNumber(sizeWithSizeInfo);
+
+        ByteBuffer data = ByteBuffer.allocate(numSectors * sectorSize);
+        data.putInt(size);
+        data.put(value);
+        writeEntries[key.getId()] = new WriteEntry(data, numSectors);
+    }
+
+    /**
+     * Writes a value made of several parts, as if they were concatenated into one buffer. The parts are not copied, they
+     * are kept until the region is closed and then written with a gathering write. They must not be modified until then.
+     * Note that the JDK still copies heap buffers into temporary direct buffers for the write, this only saves the copy
+     * into a buffer of the whole entry.
+     */
+    public synchronized void writeValue(K key, ByteBuffer[] parts) throws IOException {
+        if (parts == null) {
+            return;
+        }
+        initWriteEntries();
+        ByteBuffer[] buffers = new ByteBuffer[parts.length + 2];
+        int size = 0;
+        for (int i = 0; i < parts.length; i++) {
+            ByteBuffer part = parts[i].duplicate();
+            part.position(0);
+            size += part.remaining();
+            buffers[i + 1] = part;
+        }
+        int sizeWithSizeInfo = size + Integer.BYTES;
+        int numSectors = getSectorNumber(sizeWithSizeInfo);
+
+        ByteBuffer sizeInfo = ByteBuffer.allocate(Integer.BYTES);
+        sizeInfo.putInt(0, size);
+        buffers[0] = sizeInfo;
+        ByteBuffer padding = zeroSector.duplicate();
+        padding.limit(numSectors * sectorSize - sizeWithSizeInfo);
+        buffers[buffers.length - 1] = padding;
+        writeEntries[key.getId()] = new WriteEntry(buffers, numSectors);
+    }
+
+    private void initWriteEntries() throws IOException {
         if (writeEntries == null) {
             writeEntries = new WriteEntry[keyCount];
             if (file.size() >= keyCount * Integer.BYTES) {
@@ -96,19 +150,10 @@ public class MemoryWriteRegion<K extends IKey<K>> implements IRegion<K> {
                     fileBuffer.position(offsetBytes);
                     data.put(fileBuffer);
 
-                    writeEntries[i] = new WriteEntry(data);
+                    writeEntries[i] = new WriteEntry(data, unpackSize(loc));
                 }
             }
         }
-        value.position(0);
-        int size = value.remaining();
-        int sizeWithSizeInfo = size + Integer.BYTES;
-        int numSectors = getSectorNumber(sizeWithSizeInfo);
-
-        ByteBuffer data = ByteBuffer.allocate(numSectors * sectorSize);
-        data.putInt(size);
-        data.put(value);
-        writeEntries[key.getId()] = new WriteEntry(data);
     }
 
     @Override
@@ -141,32 +186,61 @@ public class MemoryWriteRegion<K extends IKey<K>> implements IRegion<K> {
     }
 
     @Override public void close() throws IOException {
+        PipelineMetrics.get().regionClosed();
         ByteBuffer header = ByteBuffer.allocate(keyCount * Integer.BYTES);
         int writePos = ceilDiv(keyCount * Integer.BYTES, sectorSize);
         if(writeEntries == null) { // this can happen if the write region was never written to before being closed due to lazy initialisation of the field
+            this.file.close();
             return;
         }
+        int bufferCount = 1;
         for (WriteEntry writeEntry : writeEntries) {
             if (writeEntry == null) {
                 header.putInt(0);
                 continue;
             }
-            int sectorCount = ceilDiv(writeEntry.buffer.capacity(), sectorSize);
-            header.putInt(packed(new RegionEntryLocation(writePos, sectorCount)));
-            writePos += sectorCount;
+            header.putInt(packed(new RegionEntryLocation(writePos, writeEntry.sectorCount)));
+            writePos += writeEntry.sectorCount;
+            bufferCount += writeEntry.buffers.length;
         }
-        file.position(0);
+        this.file.close();
+        // write the whole region to a temporary file first, so that the previous version of this region
+        // stays intact if the converter is killed while writing
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer[] buffers = new ByteBuffer[bufferCount];
         header.position(0);
-        file.write(header);
+        buffers[0] = header;
+        int idx = 1;
         for (WriteEntry writeEntry : writeEntries) {
             if (writeEntry == null) {
                 continue;
             }
-            writeEntry.buffer.position(0);
-            file.write(writeEntry.buffer);
+            for (ByteBuffer buffer : writeEntry.buffers) {
+                buffer.position(0);
+                buffers[idx++] = buffer;
+            }
+        }
+        long bytesWritten = 0;
+        try (FileChannel out = FileChannel.open(tmpPath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            // a single gathering write may write only some of the buffers, continue from the first unfinished one
+            int first = 0;
+            while (first < buffers.length) {
+                bytesWritten += out.write(buffers, first, buffers.length - first);
+                while (first < buffers.length && !buffers[first].hasRemaining()) {
+                    first++;
+                }
+            }
+            // the conversion journal may record these chunks as soon as the region is closed
+            out.force(true);
         }
+        try {
+            Files.move(tmpPath, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpPath, path, REPLACE_EXISTING);
+        }
+        Utils.syncDirectory(path.getParent());
+        PipelineMetrics.get().addBytesWritten(bytesWritten);
         Arrays.fill(writeEntries, null);
-        this.file.close();
     }
 
     private static int ceilDiv(int x, int y) {
@@ -202,10 +276,16 @@ public class MemoryWriteRegion<K extends IKey<K>> implements IRegion<K> {
 
     private static class WriteEntry {
 
-        final ByteBuffer buffer;
+        final ByteBuffer[] buffers;
+        final int sectorCount;
+
+        private WriteEntry(ByteBuffer buffer, int sectorCount) {
+            this(new ByteBuffer[]{buffer}, sectorCount);
+        }
 
-        private WriteEntry(ByteBuffer buffer) {
-            this.buffer = buffer;
+        private WriteEntry(ByteBuffer[] buffers, int sectorCount) {
+            this.buffers = buffers;
+            this.sectorCount = sectorCount;
         }
     }
     /**
@@ -241,8 +321,10 @@ public class MemoryWriteRegion<K extends IKey<K>> implements IRegion<K> {
         }
 
         public MemoryWriteRegion<K> build() throws IOException {
-            SeekableByteChannel file = Files.newByteChannel(directory.resolve(regionKey.getName()), CREATE, READ, WRITE);
-            return new MemoryWriteRegion<>(file, this.regionKey, keyProvider, this.sectorSize);
+            Path path = directory.resolve(regionKey.getName());
+            SeekableByteChannel file = Files.newByteChannel(path, CREATE, READ, WRITE);
+            PipelineMetrics.get().regionOpened();
+            return new MemoryWriteRegion<>(file, path, this.regionKey, keyProvider, this.sectorSize);
         }
     }
 }
@@ -0,0 +1,195 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the conversion pipeline, shared by all the readers, converters and writers of the current conversion.
+ * They are global, so only one conversion can run in a JVM at a time.
+ * <p>
+ * Every stage has a latency histogram, stages are recorded under these names:
+ * <ul>
+ *     <li>{@link #READ} - reading a single entry from a region</li>
+ *     <li>{@link #DECODE} - decompressing and parsing NBT</li>
+ *     <li>{@link #CONVERT} - whole {@link cubicchunks.converter.lib.convert.ChunkDataConverter#convert(Object)} call</li>
+ *     <li>{@link #ENCODE} - writing and compressing NBT</li>
+ *     <li>{@link #WRITE} - whole {@link cubicchunks.converter.lib.convert.ChunkDataWriter#accept(Object)} call</li>
+ * </ul>
+ * Edit task calls are recorded per task in {@link EditTaskStats}, see {@link #editTask(String)}.
+ */
+public class PipelineMetrics {
+
+    public static final String READ = "read";
+    public static final String DECODE = "decode";
+    public static final String CONVERT = "convert";
+    public static final String ENCODE = "encode";
+    public static final String WRITE = "write";
+
+    private static volatile PipelineMetrics current = new PipelineMetrics();
+
+    private final long startTime = System.nanoTime();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, EditTaskStats> editTasks = new ConcurrentHashMap<>();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder regionsOpened = new LongAdder();
+    private final LongAdder regionsClosed = new LongAdder();
+
+    /**
+     * @return metrics of the current conversion
+     */
+    public static PipelineMetrics get() {
+        return current;
+    }
+
+    /**
+     * Starts collecting metrics from zero, called by {@link cubicchunks.converter.lib.convert.WorldConverter#convert}
+     * when a conversion starts.
+     */
+    public static PipelineMetrics reset() {
+        return current = new PipelineMetrics();
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * @param label the edit task label, usually the config line it was created from
+     */
+    public EditTaskStats editTask(String label) {
+        EditTaskStats stats = editTasks.get(label);
+        if (stats == null) {
+            stats = editTasks.computeIfAbsent(label, EditTaskStats::new);
+        }
+        return stats;
+    }
+
+    public void record(String name, long nanos) {
+        histogram(name).record(nanos);
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    public void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    public void regionOpened() {
+        regionsOpened.increment();
+    }
+
+    public void regionClosed() {
+        regionsClosed.increment();
+    }
+
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    /**
+     * @return stats of all edit tasks that ran, most expensive first
+     */
+    public List<EditTaskStats> getRankedEditTasks() {
+        List<EditTaskStats> ranked = new ArrayList<>(editTasks.values());
+        ranked.sort(Comparator.comparingLong(EditTaskStats::getNanos).reversed());
+        return ranked;
+    }
+
+    public String editTaskSummary() {
+        List<EditTaskStats> ranked = getRankedEditTasks();
+        long totalNanos = 0;
+        for (EditTaskStats stats : ranked) {
+            totalNanos += stats.getNanos();
+        }
+        StringBuilder sb = new StringBuilder("Edit task summary (most expensive first):");
+        for (EditTaskStats stats : ranked) {
+            sb.append('\n').append(stats.toSummaryLine(totalNanos));
+        }
+        return sb.toString();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getRegionsOpened() {
+        return regionsOpened.sum();
+    }
+
+    public long getRegionsClosed() {
+        return regionsClosed.sum();
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+            "{\"elapsedMs\":%d,\"bytesRead\":%d,\"bytesWritten\":%d,\"regionsOpened\":%d,\"regionsClosed\":%d,\"stages\":{",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+            getBytesRead(), getBytesWritten(), getRegionsOpened(), getRegionsClosed()));
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(escape(entry.getKey())).append("\":").append(entry.getValue().toJson());
+        }
+        return sb.append("}}").toString();
+    }
+
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -38,11 +38,14 @@ import cubicchunks.regionlib.util.CheckedFunction;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
@@ -50,12 +53,18 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.InflaterInputStream;
@@ -64,6 +73,9 @@ import static java.util.Collections.emptyList;
 
 public class Utils {
 
+    // magic, deflate method, no flags, mtime, extra flags and OS all zero, same as GZIPOutputStream writes
+    static final byte[] GZIP_HEADER = {(byte) 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0};
+
     /**
      * Returns a consumer that checks for interruption, and throws {@link UncheckedInterruptedException}
      * if thread is interrupted.
@@ -104,6 +116,24 @@ public class Utils {
         } catch (FileAlreadyExistsException ex) {}
     }
 
+    /**
+     * Forces the entries of a directory to the storage device, so that files created in or moved into it survive a power
+     * loss. Windows can't open directories, and doesn't need this, so there it does nothing.
+     */
+    public static void syncDirectory(Path dir) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
     public static boolean isValidPath(String text) {
         try {
             Files.exists(Paths.get(text));
@@ -143,12 +173,7 @@ public class Utils {
         }
     }
 
-    public static void copyEverythingExcept(Path file, Path srcDir, Path dstDir, Predicate<Path> excluded, Consumer<Path> onCopy) throws IOException {
-        boolean canCopyFileAttributes = detectCanCopyAttributesForWSL(dstDir);
-        copyEverythingExceptInternal(file, srcDir, dstDir, excluded, onCopy, canCopyFileAttributes);
-    }
-
-    private static boolean detectCanCopyAttributesForWSL(Path dstDir) throws IOException {
+    static boolean detectCanCopyAttributesForWSL(Path dstDir) throws IOException {
         // workaround for WSL: windows filesystem mounted on WSL doesn't support copying file attributes
         boolean canCopyFileAttributes;
         String testFileName = "__CC_CONVERTER_TEST_FILE_NAME_786432879129048";
@@ -167,51 +192,16 @@ public class Utils {
         return canCopyFileAttributes;
     }
 
-    private static void copyEverythingExceptInternal(Path file, Path srcDir, Path dstDir, Predicate<Path> excluded, Consumer<Path> onCopy, boolean canCopyAttributes) throws IOException{
-        try (Stream<Path> stream = Files.list(file)) {
-            stream.forEach(f -> {
-                if (!excluded.test(f)) {
-                    try {
-                        copyFile(f, srcDir, dstDir, canCopyAttributes);
-                        if (Files.isRegularFile(f)) {
-                            onCopy.accept(f);
-                        }
-                        if (Files.isDirectory(f)) {
-                            copyEverythingExcept(f, srcDir, dstDir, excluded, onCopy);
-                        } else if (!Files.isRegularFile(f)) {
-                            throw new UnsupportedOperationException();
-                        }
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                }
-            });
-        } catch (UncheckedIOException e) {
-            throw e.getCause();
-        }
-    }
-
-    public static void copyFile(Path srcFile, Path srcDir, Path dstDir, boolean canCopyFileAttributes) throws IOException {
-        Path relative = srcDir.relativize(srcFile);//
-        Path dstFile = dstDir.resolve(relative);
-
-        // TODO: handle symlinks
-        // workaround for WSL: Windows filesystem mounted on WSL doesn't allow copying directories
-        Files.createDirectories(dstFile.getParent());
-        if (Files.isDirectory(srcFile)) {
-            if(!Files.exists(dstFile)) {
-                Files.createDirectories(dstFile);
-            }
-            return;
-        }
-        if (canCopyFileAttributes) {
-            Files.copy(srcFile, dstFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
-        } else {
-            Files.copy(srcFile, dstFile, StandardCopyOption.REPLACE_EXISTING);
-        }
+    /**
+     * @return stream over the whole content of a heap buffer, regardless of its position. Works for slices of a larger
+     * buffer, like the ones returned by {@link MemoryReadRegion#readValueSlices(java.util.Collection)}.
+     */
+    public static InputStream newInputStream(ByteBuffer buffer) {
+        return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset(), buffer.capacity());
     }
 
     public static CompoundTag readCompressed(InputStream is) throws IOException {
+        long start = System.nanoTime();
         int i = is.read();
         BufferedInputStream data;
         if (i == 1) {
@@ -222,16 +212,22 @@ public class Utils {
             throw new UnsupportedOperationException();
         }
 
-        return (CompoundTag) new NBTInputStream(data, false).readTag();
+        CompoundTag tag = (CompoundTag) new NBTInputStream(data, false).readTag();
+        PipelineMetrics.get().record(PipelineMetrics.DECODE, System.nanoTime() - start);
+        return tag;
     }
 
     public static CompoundTag readCompressedCC(InputStream is) throws IOException {
+        long start = System.nanoTime();
         try (NBTInputStream nbtInputStream = new NBTInputStream(new BufferedInputStream(new GZIPInputStream(is)), false)) {
-            return (CompoundTag) nbtInputStream.readTag();
+            CompoundTag tag = (CompoundTag) nbtInputStream.readTag();
+            PipelineMetrics.get().record(PipelineMetrics.DECODE, System.nanoTime() - start);
+            return tag;
         }
     }
 
     public static ByteBuffer writeCompressed(CompoundTag tag, boolean prefixFormat) throws IOException {
+        long start = System.nanoTime();
         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
         if (prefixFormat) {
             bytes.write(1); // mark as GZIP
@@ -239,16 +235,52 @@ public class Utils {
         try (NBTOutputStream nbtOut = new NBTOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes)), false)) {
             nbtOut.writeTag(tag);
         }
-        return ByteBuffer.wrap(bytes.toByteArray());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        PipelineMetrics.get().record(PipelineMetrics.ENCODE, System.nanoTime() - start);
+        return buffer;
     }
 
-    public static ByteBuffer createAirCubeBuffer(EntryLocation3D loc) {
-        CompoundTag compoundTag = Utils.emptyCube(loc.getEntryX(), loc.getEntryY(), loc.getEntryZ());
+    /**
+     * Encodes all the tags the same way as {@link #writeCompressed(CompoundTag, boolean)} without prefix does. One
+     * {@link Deflater} and output buffer are reused for the whole batch, instead of allocating new ones for every tag.
+     */
+    public static <K> Map<K, ByteBuffer> writeCompressed(Map<K, CompoundTag> tags) throws IOException {
+        long start = System.nanoTime();
+        Map<K, ByteBuffer> encoded = new HashMap<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        CRC32 crc = new CRC32();
         try {
-            return Utils.writeCompressed(compoundTag, false);
-        } catch(IOException e) {
-            throw new Error("Writing known NBT to ByteBuffer shouldn't throw IOException", e);
+            for (Map.Entry<K, CompoundTag> entry : tags.entrySet()) {
+                bytes.reset();
+                deflater.reset();
+                crc.reset();
+                bytes.write(GZIP_HEADER);
+                // closing the stream finishes the deflater, but doesn't end it as it's not the stream's own deflater
+                try (NBTOutputStream nbtOut = new NBTOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(new DeflaterOutputStream(bytes, deflater, 4096), crc)), false)) {
+                    nbtOut.writeTag(entry.getValue());
+                }
+                writeIntLE(bytes, (int) crc.getValue());
+                writeIntLE(bytes, (int) deflater.getBytesRead());
+                encoded.put(entry.getKey(), ByteBuffer.wrap(bytes.toByteArray()));
+            }
+        } finally {
+            deflater.end();
         }
+        PipelineMetrics.get().record(PipelineMetrics.ENCODE, System.nanoTime() - start);
+        return encoded;
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    public static ByteBuffer createAirCubeBuffer(EntryLocation3D loc) {
+        return EmptyCubeTemplate.DEFAULT.create(loc.getEntryX(), loc.getEntryY(), loc.getEntryZ());
     }
 
     public static CompoundTag emptyCube(int x, int y, int z) {
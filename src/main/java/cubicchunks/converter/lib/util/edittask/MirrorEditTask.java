@@ -0,0 +1,451 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util.edittask;
+
+import com.flowpowered.nbt.*;
+import cubicchunks.converter.lib.conf.command.EditTaskContext;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.ImmutablePair;
+import cubicchunks.converter.lib.util.Vector2i;
+import cubicchunks.converter.lib.util.Vector3i;
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.material.Directional;
+import org.bukkit.material.MaterialData;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mirrors a box in place along the X or Z axis, around the center of the box.
+ *
+ * All the per-block work is table driven: block indices are moved using a precomputed permutation
+ * and metadata is remapped using a (blockId << 4 | meta) lookup table built once per axis.
+ */
+public class MirrorEditTask extends BaseEditTask {
+
+    public enum Axis {
+        X, Z
+    }
+
+    // block index is y << 8 | z << 4 | x, so mirroring along an axis flips the bits of that coordinate
+    static final int[] X_BLOCK_INDEX = makeBlockPermutation(0x00F);
+    static final int[] Z_BLOCK_INDEX = makeBlockPermutation(0x0F0);
+    // nibble arrays store 2 blocks per byte, adjacent along X
+    private static final int[] X_NIBBLE_BYTE_INDEX = makeBytePermutation(0x007);
+    private static final int[] Z_NIBBLE_BYTE_INDEX = makeBytePermutation(0x078);
+
+    static final byte[] X_METADATA = makeMetadataTable(Axis.X);
+    static final byte[] Z_METADATA = makeMetadataTable(Axis.Z);
+
+    private final Axis axis;
+    private final BoundingBox box;
+    private final int[] blockIndex;
+    private final int[] nibbleByteIndex;
+    private final byte[] metadata;
+
+    public MirrorEditTask(BoundingBox srcBox, Axis axis) {
+        srcBoxes.add(srcBox);
+        dstBoxes.add(srcBox);
+        this.box = srcBox;
+        this.axis = axis;
+        this.blockIndex = axis == Axis.X ? X_BLOCK_INDEX : Z_BLOCK_INDEX;
+        this.nibbleByteIndex = axis == Axis.X ? X_NIBBLE_BYTE_INDEX : Z_NIBBLE_BYTE_INDEX;
+        this.metadata = axis == Axis.X ? X_METADATA : Z_METADATA;
+    }
+
+    private static int[] makeBlockPermutation(int mask) {
+        int[] table = new int[4096];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = i ^ mask;
+        }
+        return table;
+    }
+
+    private static int[] makeBytePermutation(int mask) {
+        int[] table = new int[2048];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = i ^ mask;
+        }
+        return table;
+    }
+
+    private static byte[] makeMetadataTable(Axis axis) {
+        byte[] table = new byte[4096];
+        for (int id = 0; id < 256; id++) {
+            Material material = Material.getMaterial(id);
+            for (int meta = 0; meta < 16; meta++) {
+                int mirrored = meta;
+                if (material != null && material.isBlock()) {
+                    try {
+                        mirrored = mirrorMetadata(material, meta, axis);
+                    } catch (RuntimeException e) {
+                        // some materials don't accept every metadata value, keep those unchanged
+                    }
+                }
+                table[id << 4 | meta] = (byte) (mirrored & 0xF);
+            }
+        }
+        // metadata that doesn't mirror back isn't a valid value of that block, keep it unchanged
+        // so that mirroring twice always gives the original block
+        byte[] involution = table.clone();
+        for (int i = 0; i < table.length; i++) {
+            int mirrored = i & ~0xF | table[i];
+            if (table[mirrored] != (i & 0xF)) {
+                involution[i] = (byte) (i & 0xF);
+            }
+        }
+        return involution;
+    }
+
+    private static int mirrorMetadata(Material material, int metaData, Axis axis) {
+        String blockName = material.name();
+        if (blockName.contains("VINE")) {
+            return handleVine(metaData, axis);
+        }
+        if (blockName.contains("GLAZED_TERRACOTTA")) {
+            return mirrorHorizontalIndex(metaData & 3, axis) | (metaData & ~3);
+        }
+        if (blockName.contains("ANVIL")) {
+            return mirrorHorizontalIndex(metaData & 3, axis) | (metaData & ~3);
+        }
+        if (blockName.contains("END_ROD")) {
+            return handleEndRod(metaData, axis);
+        }
+        if (blockName.contains("_DOOR") && !blockName.contains("TRAP_DOOR")) {
+            return handleDoors(metaData, axis);
+        }
+        switch (blockName) {
+            case "RAILS":
+                return handleRails(metaData, axis);
+            case "POWERED_RAIL":
+            case "ACTIVATOR_RAIL":
+            case "DETECTOR_RAIL":
+                return handleRails(metaData & 7, axis) | (metaData & 8);
+            case "SIGN_POST":
+            case "STANDING_BANNER":
+                return mirrorRotation16(metaData, axis);
+        }
+        MaterialData blockData = material.getNewData((byte) metaData);
+        if (blockData instanceof Directional) {
+            BlockFace facing = ((Directional) blockData).getFacing();
+            BlockFace newFacing = mirrorFace(facing, axis);
+            if (facing != null && newFacing != facing) {
+                ((Directional) blockData).setFacingDirection(newFacing);
+                return blockData.getData();
+            }
+        }
+        return metaData;
+    }
+
+    private static BlockFace mirrorFace(BlockFace face, Axis axis) {
+        if (face == null) {
+            return null;
+        }
+        int modX = axis == Axis.X ? -face.getModX() : face.getModX();
+        int modZ = axis == Axis.Z ? -face.getModZ() : face.getModZ();
+        for (BlockFace candidate : BlockFace.values()) {
+            if (candidate.getModX() == modX && candidate.getModY() == face.getModY() && candidate.getModZ() == modZ) {
+                return candidate;
+            }
+        }
+        return face;
+    }
+
+    /**
+     * Mirrors a 0-3 horizontal index, in the order south, west, north, east
+     */
+    private static int mirrorHorizontalIndex(int index, Axis axis) {
+        if (axis == Axis.X) {
+            return (index & 1) == 1 ? index ^ 2 : index;
+        }
+        return (index & 1) == 0 ? index ^ 2 : index;
+    }
+
+    /**
+     * Mirrors a 0-15 rotation, where 0 is south and values increase clockwise (signs, banners, skulls)
+     */
+    private static int mirrorRotation16(int rotation, Axis axis) {
+        return axis == Axis.X ? (16 - rotation) & 15 : (8 - rotation) & 15;
+    }
+
+    private static int handleVine(int metaData, Axis axis) {
+        // bits: 1 south, 2 west, 4 north, 8 east
+        if (axis == Axis.X) {
+            return (metaData & 5) | (metaData & 2) << 2 | (metaData & 8) >> 2;
+        }
+        return (metaData & 10) | (metaData & 1) << 2 | (metaData & 4) >> 2;
+    }
+
+    private static int handleRails(int metaData, Axis axis) {
+        if (axis == Axis.X) {
+            switch (metaData) {
+                case 2: //ascending east/west
+                    return 3;
+                case 3:
+                    return 2;
+                case 6: //curves
+                    return 7;
+                case 7:
+                    return 6;
+                case 8:
+                    return 9;
+                case 9:
+                    return 8;
+            }
+        } else {
+            switch (metaData) {
+                case 4: //ascending north/south
+                    return 5;
+                case 5:
+                    return 4;
+                case 6: //curves
+                    return 9;
+                case 9:
+                    return 6;
+                case 7:
+                    return 8;
+                case 8:
+                    return 7;
+            }
+        }
+        return metaData;
+    }
+
+    private static int handleEndRod(int metaData, Axis axis) {
+        if (axis == Axis.X) {
+            switch (metaData) {
+                case 4:
+                    return 5;
+                case 5:
+                    return 4;
+            }
+        } else {
+            switch (metaData) {
+                case 2:
+                    return 3;
+                case 3:
+                    return 2;
+            }
+        }
+        return metaData;
+    }
+
+    private static int handleDoors(int metaData, Axis axis) {
+        if ((metaData & 8) != 0) { //upper half only stores the hinge side
+            return metaData ^ 1;
+        }
+        // lower half: 0 east, 1 south, 2 west, 3 north
+        int facing = metaData & 3;
+        if (axis == Axis.X ? (facing & 1) == 0 : (facing & 1) == 1) {
+            facing ^= 2;
+        }
+        return (metaData & ~3) | facing;
+    }
+
+    private int mirrorCubeCoordinate(int coord) {
+        if (axis == Axis.X) {
+            return box.getMinPos().getX() + box.getMaxPos().getX() - coord;
+        }
+        return box.getMinPos().getZ() + box.getMaxPos().getZ() - coord;
+    }
+
+    private Vector3i mirrorCubePos(Vector3i cubePos) {
+        if (axis == Axis.X) {
+            return new Vector3i(mirrorCubeCoordinate(cubePos.getX()), cubePos.getY(), cubePos.getZ());
+        }
+        return new Vector3i(cubePos.getX(), cubePos.getY(), mirrorCubeCoordinate(cubePos.getZ()));
+    }
+
+    private Vector2i mirrorColumnPos(Vector2i columnPos) {
+        if (axis == Axis.X) {
+            return new Vector2i(mirrorCubeCoordinate(columnPos.getX()), columnPos.getY());
+        }
+        return new Vector2i(columnPos.getX(), mirrorCubeCoordinate(columnPos.getY()));
+    }
+
+    /**
+     * @return the sum of a block coordinate and its mirrored counterpart, along the mirrored axis
+     */
+    private int mirroredBlockSum() {
+        int min = axis == Axis.X ? box.getMinPos().getX() : box.getMinPos().getZ();
+        int max = axis == Axis.X ? box.getMaxPos().getX() : box.getMaxPos().getZ();
+        return ((min + max + 1) << 4) - 1;
+    }
+
+    private void mirrorBlocks(CompoundMap sectionDetails) {
+        final byte[] blocks = (byte[]) sectionDetails.get("Blocks").getValue();
+        final byte[] meta = (byte[]) sectionDetails.get("Data").getValue();
+        final byte[] add = sectionDetails.containsKey("Add") ? (byte[]) sectionDetails.get("Add").getValue() : null;
+
+        byte[] newBlocks = new byte[4096];
+        byte[] newMeta = new byte[2048];
+
+        for (int i = 0; i < 4096; i++) {
+            int newIndex = blockIndex[i];
+            int blockId = blocks[i] & 0xFF;
+            int metaData = EditTask.nibbleGetAtIndex(meta, i);
+            newBlocks[newIndex] = blocks[i];
+            if (add == null || EditTask.nibbleGetAtIndex(add, i) == 0) {
+                metaData = metadata[blockId << 4 | metaData];
+            }
+            EditTask.nibbleSetAtIndex(newMeta, newIndex, metaData);
+        }
+        sectionDetails.put(new ByteArrayTag("Blocks", newBlocks));
+        sectionDetails.put(new ByteArrayTag("Data", newMeta));
+
+        mirrorNibbleArray(sectionDetails, "Add");
+        mirrorNibbleArray(sectionDetails, "BlockLight");
+        mirrorNibbleArray(sectionDetails, "SkyLight");
+    }
+
+    void mirrorNibbleArray(CompoundMap sectionDetails, String name) {
+        if (!sectionDetails.containsKey(name)) {
+            return;
+        }
+        byte[] src = (byte[]) sectionDetails.get(name).getValue();
+        byte[] dst = new byte[src.length];
+        boolean swapNibbles = axis == Axis.X;
+        for (int i = 0; i < 2048; i++) {
+            int b = src[i] & 0xFF;
+            dst[nibbleByteIndex[i]] = swapNibbles ? (byte) (b << 4 | b >>> 4) : (byte) b;
+        }
+        sectionDetails.put(new ByteArrayTag(name, dst));
+    }
+
+    private void mirrorTileEntities(CompoundMap level) {
+        String coord = axis == Axis.X ? "x" : "z";
+        int sum = mirroredBlockSum();
+        List<CompoundTag> tileEntities = ((ListTag<CompoundTag>) level.get("TileEntities")).getValue();
+        for (int idx = 0, size = tileEntities.size(); idx < size; idx++) {
+            CompoundMap tileEntity = tileEntities.get(idx).getValue();
+            tileEntity.put(new IntTag(coord, sum - ((IntTag) tileEntity.get(coord)).getValue()));
+
+            if (tileEntity.get("Rot") instanceof ByteTag) {
+                int rot = ((ByteTag) tileEntity.get("Rot")).getValue();
+                tileEntity.put(new ByteTag("Rot", (byte) mirrorRotation16(rot, axis)));
+            }
+        }
+    }
+
+    private void mirrorTileTicks(CompoundMap level) {
+        if (!(level.get("TileTicks") instanceof ListTag)) {
+            return;
+        }
+        String coord = axis == Axis.X ? "x" : "z";
+        int sum = mirroredBlockSum();
+        List<CompoundTag> tileTicks = ((ListTag<CompoundTag>) level.get("TileTicks")).getValue();
+        for (int idx = 0, size = tileTicks.size(); idx < size; idx++) {
+            CompoundMap tileTick = tileTicks.get(idx).getValue();
+            if (tileTick.get(coord) instanceof IntTag) {
+                tileTick.put(new IntTag(coord, sum - ((IntTag) tileTick.get(coord)).getValue()));
+            }
+        }
+    }
+
+    private void mirrorEntities(CompoundMap level) {
+        int sum = mirroredBlockSum();
+        List<CompoundTag> entities = ((ListTag<CompoundTag>) level.get("Entities")).getValue();
+        for (int idx = 0, size = entities.size(); idx < size; idx++) {
+            CompoundMap entity = entities.get(idx).getValue();
+            List<DoubleTag> pos = ((ListTag<DoubleTag>) entity.get("Pos")).getValue();
+            double x = pos.get(0).getValue();
+            double z = pos.get(2).getValue();
+            if (axis == Axis.X) {
+                x = sum + 1 - x;
+            } else {
+                z = sum + 1 - z;
+            }
+            List<DoubleTag> newPos = Arrays.asList(new DoubleTag("", x), new DoubleTag("", pos.get(1).getValue()), new DoubleTag("", z));
+            entity.put(new ListTag<>("Pos", DoubleTag.class, newPos));
+
+            if (entity.get("Rotation") instanceof ListTag) {
+                List<FloatTag> rotation = ((ListTag<FloatTag>) entity.get("Rotation")).getValue();
+                float yaw = rotation.get(0).getValue();
+                yaw = axis == Axis.X ? -yaw : 180 - yaw;
+                List<FloatTag> newRotation = Arrays.asList(new FloatTag("", yaw), rotation.get(1));
+                entity.put(new ListTag<>("Rotation", FloatTag.class, newRotation));
+            }
+
+            // hanging entities (item frames, paintings) store the block they are attached to
+            String tileCoord = axis == Axis.X ? "TileX" : "TileZ";
+            if (entity.get(tileCoord) instanceof IntTag) {
+                entity.put(new IntTag(tileCoord, sum - ((IntTag) entity.get(tileCoord)).getValue()));
+            }
+            if (entity.get("Facing") instanceof ByteTag) {
+                int facing = ((ByteTag) entity.get("Facing")).getValue();
+                entity.put(new ByteTag("Facing", (byte) mirrorHorizontalIndex(facing & 3, axis)));
+            }
+        }
+    }
+
+    @Nonnull @Override public List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> actOnCube(Vector3i cubePos, EditTaskContext.EditTaskConfig config, CompoundTag cubeTag, long inCubePriority) {
+        List<ImmutablePair<Vector3i, ImmutablePair<Long, CompoundTag>>> outCubes = new ArrayList<>();
+
+        Vector3i dstPos = this.mirrorCubePos(cubePos);
+
+        CompoundMap level = (CompoundMap) cubeTag.getValue().get("Level").getValue();
+
+        CompoundMap sectionDetails;
+        try {
+            sectionDetails = ((CompoundTag) ((List<?>) (level).get("Sections").getValue()).get(0)).getValue(); //POSSIBLE ARRAY OUT OF BOUNDS EXCEPTION ON A MALFORMED CUBE
+        } catch (NullPointerException | ArrayIndexOutOfBoundsException e) {
+            LOGGER.warning("Malformed cube at position (" + cubePos.getX() + ", " + cubePos.getY() + ", " + cubePos.getZ() + "), skipping!");
+            return outCubes;
+        }
+
+        level.put(new IntTag("x", dstPos.getX()));
+        level.put(new IntTag("y", dstPos.getY()));
+        level.put(new IntTag("z", dstPos.getZ()));
+
+        if (config.shouldRelightDst()) {
+            this.markCubeForLightUpdates(level);
+        }
+        this.markCubePopulated(level);
+
+        this.mirrorBlocks(sectionDetails);
+        this.mirrorEntities(level);
+        this.mirrorTileEntities(level);
+        this.mirrorTileTicks(level);
+
+        outCubes.add(new ImmutablePair<>(dstPos, new ImmutablePair<>(inCubePriority + 1, cubeTag)));
+        return outCubes;
+    }
+
+    @Nonnull
+    @Override
+    public List<ImmutablePair<Vector2i, ImmutablePair<Long, CompoundTag>>> actOnColumn(Vector2i columnPos, EditTaskContext.EditTaskConfig config, CompoundTag columnTag, long inColumnPriority) {
+        List<ImmutablePair<Vector2i, ImmutablePair<Long, CompoundTag>>> outColumns = new ArrayList<>();
+
+        Vector2i outPosition = this.mirrorColumnPos(columnPos);
+        CompoundMap level = (CompoundMap) columnTag.getValue().get("Level").getValue();
+        level.put(new IntTag("x", outPosition.getX()));
+        level.put(new IntTag("z", outPosition.getY()));
+
+        outColumns.add(new ImmutablePair<>(outPosition, new ImmutablePair<>(inColumnPriority + 1, columnTag)));
+        return outColumns;
+    }
+}
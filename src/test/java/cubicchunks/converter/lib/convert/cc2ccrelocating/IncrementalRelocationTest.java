@@ -0,0 +1,209 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.cc2ccrelocating;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import cubicchunks.converter.lib.conf.ConverterConfig;
+import cubicchunks.converter.lib.util.BoundingBox;
+import cubicchunks.converter.lib.util.Vector3i;
+import cubicchunks.converter.lib.util.edittask.CopyEditTask;
+import cubicchunks.converter.lib.util.edittask.EditTask;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class IncrementalRelocationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void dirtyAreasPropagateThroughChainedTasks() {
+        // listed in reverse, so a single pass over the tasks would miss the second step
+        List<EditTask> tasks = Arrays.asList(
+                copyArea(1, 0, 2, 0),
+                copyArea(0, 0, 1, 0),
+                copyArea(10, 10, 11, 10));
+        Map<String, List<BoundingBox>> changed = new HashMap<>();
+        changed.put("", new ArrayList<>(Collections.singletonList(area(0, 0))));
+
+        Map<String, List<BoundingBox>> dirty = IncrementalRelocation.dirtyAreas(changed, tasks);
+
+        assertTrue(containsArea(dirty.get(""), 0, 0));
+        assertTrue(containsArea(dirty.get(""), 1, 0));
+        assertTrue(containsArea(dirty.get(""), 2, 0));
+        assertFalse(containsArea(dirty.get(""), 11, 10));
+        // the input isn't modified
+        assertEquals(1, changed.get("").size());
+    }
+
+    @Test
+    public void dirtyAreasTerminateOnCycles() {
+        List<EditTask> tasks = Arrays.asList(copyArea(0, 0, 1, 0), copyArea(1, 0, 0, 0));
+        Map<String, List<BoundingBox>> changed = new HashMap<>();
+        changed.put("", new ArrayList<>(Collections.singletonList(area(1, 0))));
+
+        Map<String, List<BoundingBox>> dirty = IncrementalRelocation.dirtyAreas(changed, tasks);
+
+        assertTrue(containsArea(dirty.get(""), 0, 0));
+        assertTrue(containsArea(dirty.get(""), 1, 0));
+    }
+
+    @Test
+    public void dirtyAreasOnlyPropagateWithinDimension() {
+        List<EditTask> tasks = Collections.singletonList(copyArea(0, 0, 1, 0));
+        Map<String, List<BoundingBox>> changed = new HashMap<>();
+        changed.put("DIM-1", new ArrayList<>(Collections.singletonList(area(0, 0))));
+
+        Map<String, List<BoundingBox>> dirty = IncrementalRelocation.dirtyAreas(changed, tasks);
+
+        assertFalse(containsArea(dirty.get(""), 1, 0));
+        assertFalse(containsArea(dirty.get("DIM-1"), 1, 0));
+    }
+
+    @Test
+    public void parseRegion2d() {
+        assertRegion(IncrementalRelocation.RegionFile.parse("region2d/3.-4.2dr"), "", 3, -4);
+    }
+
+    @Test
+    public void parseRegion3dMapsTwoRegionsToAnArea() {
+        // region3d files are 16 cubes wide, areas 32
+        assertRegion(IncrementalRelocation.RegionFile.parse("region3d/5.7.-3.3dr"), "", 2, -2);
+        assertRegion(IncrementalRelocation.RegionFile.parse("region3d/4.-100.-4.3dr"), "", 2, -2);
+        assertRegion(IncrementalRelocation.RegionFile.parse("region3d/-1.0.0.3dr"), "", -1, 0);
+    }
+
+    @Test
+    public void parseExtRegion() {
+        assertRegion(IncrementalRelocation.RegionFile.parse("DIM-1/region3d/-1.0.3.3dr.ext"), "DIM-1", -1, 1);
+        assertRegion(IncrementalRelocation.RegionFile.parse("region2d/7.8.2dr.ext"), "", 7, 8);
+    }
+
+    @Test
+    public void parseNestedDimension() {
+        assertRegion(IncrementalRelocation.RegionFile.parse("mods/DIM7/region2d/0.1.2dr"), "mods/DIM7", 0, 1);
+    }
+
+    @Test
+    public void parseNonRegionFiles() {
+        assertNull(IncrementalRelocation.RegionFile.parse("level.dat"));
+        assertNull(IncrementalRelocation.RegionFile.parse("region2d"));
+        assertNull(IncrementalRelocation.RegionFile.parse("region2d/notes.txt"));
+        assertNull(IncrementalRelocation.RegionFile.parse("region3d/1.2.3dr"));
+        assertNull(IncrementalRelocation.RegionFile.parse("data/villages.dat"));
+    }
+
+    @Test
+    public void linkUnchangedLinksCleanFilesAndDeletesDirtyRegions() throws IOException {
+        Path previous = folder.newFolder("previous").toPath();
+        Path src = folder.newFolder("src").toPath();
+        Path dst = folder.newFolder("dst").toPath();
+
+        write(previous.resolve("region2d/0.0.2dr"), "dirty area");
+        write(previous.resolve("region2d/1.0.2dr"), "clean area");
+        write(previous.resolve("DIM-1/region3d/2.0.0.3dr"), "clean area in other dimension");
+        write(previous.resolve(RelocationManifest.FILE_NAME), "config -");
+        // non-region files are only linked if they are still the same as in the source
+        FileTime time = FileTime.fromMillis(1_000_000_000L);
+        write(previous.resolve("level.dat"), "level").toFile().setLastModified(time.toMillis());
+        write(src.resolve("level.dat"), "level").toFile().setLastModified(time.toMillis());
+        write(previous.resolve("data/map.dat"), "old map");
+        write(src.resolve("data/map.dat"), "new map, different size");
+        // left over in the destination from an earlier run
+        write(dst.resolve("region2d/0.0.2dr"), "stale");
+        write(dst.resolve("region3d/1.5.0.3dr"), "stale");
+
+        Map<String, List<BoundingBox>> dirty = new HashMap<>();
+        dirty.put("", new ArrayList<>(Collections.singletonList(area(0, 0))));
+        IncrementalRelocation plan = new IncrementalRelocation(Collections.<EditTask>emptyList(), dirty, dirty);
+
+        int linked = plan.linkUnchanged(previous, src, dst, RelocationManifest.scan(src, null));
+
+        assertEquals(3, linked);
+        assertArrayEquals(Files.readAllBytes(previous.resolve("region2d/1.0.2dr")), Files.readAllBytes(dst.resolve("region2d/1.0.2dr")));
+        assertTrue(Files.exists(dst.resolve("DIM-1/region3d/2.0.0.3dr")));
+        assertTrue(Files.exists(dst.resolve("level.dat")));
+        assertFalse(Files.exists(dst.resolve("region2d/0.0.2dr")));
+        assertFalse(Files.exists(dst.resolve("region3d/1.5.0.3dr")));
+        assertFalse(Files.exists(dst.resolve("data/map.dat")));
+        assertFalse(Files.exists(dst.resolve(RelocationManifest.FILE_NAME)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void planCantBeUsedBeforePrepared() {
+        new IncrementalRelocation(new ConverterConfig(new HashMap<>()),
+                Collections.<EditTask>emptyList(), null).isInputNeeded("", 0, 0);
+    }
+
+    private static EditTask copyArea(int srcAreaX, int srcAreaZ, int dstAreaX, int dstAreaZ) {
+        BoundingBox src = new BoundingBox(srcAreaX * 32, 0, srcAreaZ * 32, srcAreaX * 32 + 31, 15, srcAreaZ * 32 + 31);
+        return new CopyEditTask(src, new Vector3i((dstAreaX - srcAreaX) * 32, 0, (dstAreaZ - srcAreaZ) * 32));
+    }
+
+    private static BoundingBox area(int x, int z) {
+        return new BoundingBox(x, 0, z, x, 0, z);
+    }
+
+    private static boolean containsArea(List<BoundingBox> boxes, int x, int z) {
+        if (boxes == null) {
+            return false;
+        }
+        for (BoundingBox box : boxes) {
+            if (box.columnIntersects(x, z)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertRegion(IncrementalRelocation.RegionFile region, String dimension, int areaX, int areaZ) {
+        assertEquals(dimension, region.dimension);
+        assertEquals(areaX, region.areaX);
+        assertEquals(areaZ, region.areaZ);
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.cc2ccrelocating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import cubicchunks.converter.lib.convert.ConversionJournal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class RelocationManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void changedFilesFindsAddedRemovedAndModified() throws IOException {
+        Path world = folder.newFolder("world").toPath();
+        write(world.resolve("level.dat"), "level");
+        write(world.resolve("region2d/0.0.2dr"), "modified");
+        write(world.resolve("region2d/1.0.2dr"), "removed");
+        RelocationManifest previous = RelocationManifest.scan(world, "abc");
+
+        write(world.resolve("region2d/0.0.2dr"), "modified, now longer");
+        Files.delete(world.resolve("region2d/1.0.2dr"));
+        write(world.resolve("region3d/0.0.0.3dr"), "added");
+        RelocationManifest current = RelocationManifest.scan(world, "abc");
+
+        assertEquals(new HashSet<>(Arrays.asList("region2d/0.0.2dr", "region2d/1.0.2dr", "region3d/0.0.0.3dr")),
+                current.changedFiles(previous));
+    }
+
+    @Test
+    public void scanSkipsOwnFiles() throws IOException {
+        Path world = folder.newFolder("world").toPath();
+        write(world.resolve(RelocationManifest.FILE_NAME), "config -");
+        write(world.resolve(ConversionJournal.FILE_NAME), "");
+        RelocationManifest manifest = RelocationManifest.scan(world, null);
+
+        assertNull(manifest.getFile(RelocationManifest.FILE_NAME));
+        assertNull(manifest.getFile(ConversionJournal.FILE_NAME));
+    }
+
+    @Test
+    public void pendingManifestIsReadAfterCommit() throws IOException {
+        Path world = folder.newFolder("world").toPath();
+        Path dst = folder.newFolder("dst").toPath();
+        write(world.resolve("region2d/0.0.2dr"), "region");
+        write(world.resolve("name with\ttab.dat"), "odd name");
+        RelocationManifest manifest = RelocationManifest.scan(world, "fingerprint");
+
+        manifest.writePending(dst);
+        assertNull(RelocationManifest.read(dst));
+        RelocationManifest.commitPending(dst);
+        RelocationManifest read = RelocationManifest.read(dst);
+
+        assertEquals("fingerprint", read.getConfigFingerprint());
+        assertTrue(read.changedFiles(manifest).isEmpty());
+    }
+
+    @Test
+    public void missingFingerprintIsReadAsNull() throws IOException {
+        Path dst = folder.newFolder("dst").toPath();
+        RelocationManifest.scan(folder.newFolder("world").toPath(), null).writePending(dst);
+        RelocationManifest.commitPending(dst);
+
+        assertNull(RelocationManifest.read(dst).getConfigFingerprint());
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
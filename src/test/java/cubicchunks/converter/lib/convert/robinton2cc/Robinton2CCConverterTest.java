@@ -0,0 +1,80 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.convert.robinton2cc;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class Robinton2CCConverterTest {
+
+    // Robinton cubes are indexed x << 8 | z << 4 | y, cubic chunks cubes y << 8 | z << 4 | x
+    private static int oldIndex(int newIndex) {
+        int x = newIndex & 15;
+        int z = newIndex >> 4 & 15;
+        int y = newIndex >> 8 & 15;
+        return x << 8 | z << 4 | y;
+    }
+
+    @Test
+    public void swizzleFullMatchesNaive() {
+        byte[] in = new byte[4096];
+        new Random(42).nextBytes(in);
+        byte[] expected = new byte[4096];
+        for (int i = 0; i < 4096; i++) {
+            expected[i] = in[oldIndex(i)];
+        }
+
+        byte[] out = new byte[4096];
+        Robinton2CCConverter.swizzleFull(in, out);
+        assertArrayEquals(expected, out);
+    }
+
+    @Test
+    public void swizzleNibbleMatchesNaive() {
+        byte[] in = new byte[2048];
+        new Random(42).nextBytes(in);
+        byte[] expected = new byte[2048];
+        for (int i = 0; i < 4096; i++) {
+            int old = oldIndex(i);
+            int value = in[old >> 1] >> ((old & 1) << 2) & 0xF;
+            expected[i >> 1] |= value << ((i & 1) << 2);
+        }
+
+        byte[] out = new byte[2048];
+        Robinton2CCConverter.swizzleNibble(in, out);
+        assertArrayEquals(expected, out);
+    }
+
+    @Test
+    public void swizzleOverwritesReusedBuffers() {
+        byte[] out = new byte[2048];
+        new Random(1).nextBytes(out);
+        byte[] in = new byte[2048];
+        Robinton2CCConverter.swizzleNibble(in, out);
+        assertArrayEquals(new byte[2048], out);
+    }
+}
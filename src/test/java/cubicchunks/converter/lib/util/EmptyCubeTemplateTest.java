@@ -0,0 +1,81 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+public class EmptyCubeTemplateTest {
+
+    private static final int[][] POSITIONS = {
+            {0, 0, 0}, {1, -1, 2}, {-30000000, 123456, 30000000}, {Integer.MIN_VALUE, Integer.MAX_VALUE, -1}
+    };
+
+    @Test
+    public void createMatchesEncodedEmptyCube() throws IOException {
+        for (int[] pos : POSITIONS) {
+            ByteBuffer template = EmptyCubeTemplate.DEFAULT.create(pos[0], pos[1], pos[2]);
+            ByteBuffer expected = Utils.writeCompressed(Utils.emptyCube(pos[0], pos[1], pos[2]), false);
+            assertArrayEquals(gunzip(expected), gunzip(template));
+        }
+    }
+
+    @Test
+    public void trailerHasCrcAndSizeOfContent() throws IOException {
+        for (int[] pos : POSITIONS) {
+            ByteBuffer template = EmptyCubeTemplate.DEFAULT.create(pos[0], pos[1], pos[2]);
+            byte[] content = gunzip(template);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+
+            ByteBuffer trailer = ByteBuffer.wrap(template.array(), template.limit() - 8, 8).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals((int) crc.getValue(), trailer.getInt());
+            assertEquals(content.length, trailer.getInt());
+        }
+    }
+
+    // GZIPInputStream also fails if the CRC or size in the trailer are wrong
+    static byte[] gunzip(ByteBuffer buffer) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(buffer.array(), buffer.arrayOffset(), buffer.limit()))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int read;
+            while ((read = in.read(buf)) >= 0) {
+                out.write(buf, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
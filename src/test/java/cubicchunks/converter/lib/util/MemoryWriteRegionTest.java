@@ -0,0 +1,116 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import cubicchunks.regionlib.impl.EntryLocation3D;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class MemoryWriteRegionTest {
+
+    private static final int SECTOR_SIZE = 512;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void gatherWriteReadsBackConcatenated() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Random random = new Random(42);
+        EntryLocation3D gathered = new EntryLocation3D(1, 2, 3);
+        EntryLocation3D single = new EntryLocation3D(4, 5, 6);
+        EntryLocation3D empty = new EntryLocation3D(7, 8, 9);
+        // the sizes make the parts cross sector boundaries, and the whole value not end on one
+        byte[][] parts = {randomBytes(random, 3), randomBytes(random, SECTOR_SIZE), randomBytes(random, 0), randomBytes(random, 1000)};
+        byte[] singleValue = randomBytes(random, 700);
+
+        MemoryWriteRegion<EntryLocation3D> writeRegion = region(dir, gathered);
+        ByteBuffer[] buffers = new ByteBuffer[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            buffers[i] = ByteBuffer.wrap(parts[i]);
+        }
+        writeRegion.writeValue(gathered, buffers);
+        writeRegion.writeValue(single, ByteBuffer.wrap(singleValue));
+        writeRegion.close();
+
+        MemoryReadRegion<EntryLocation3D> readRegion = new MemoryReadRegion.Builder<EntryLocation3D>()
+                .setDirectory(dir)
+                .setRegionKey(gathered.getRegionKey())
+                .setKeyProvider(new EntryLocation3D.Provider())
+                .setSectorSize(SECTOR_SIZE)
+                .build();
+        try {
+            assertArrayEquals(concat(parts), bytes(readRegion.readValue(gathered).get()));
+            assertArrayEquals(singleValue, bytes(readRegion.readValue(single).get()));
+            assertFalse(readRegion.readValue(empty).isPresent());
+        } finally {
+            readRegion.close();
+        }
+    }
+
+    private static MemoryWriteRegion<EntryLocation3D> region(Path dir, EntryLocation3D location) throws IOException {
+        return new MemoryWriteRegion.Builder<EntryLocation3D>()
+                .setDirectory(dir)
+                .setRegionKey(location.getRegionKey())
+                .setKeyProvider(new EntryLocation3D.Provider())
+                .setSectorSize(SECTOR_SIZE)
+                .build();
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[][] parts) {
+        int size = 0;
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.array();
+    }
+
+    // the read value isn't flipped, it's the whole buffer regardless of position
+    private static byte[] bytes(ByteBuffer buffer) {
+        ByteBuffer whole = buffer.duplicate();
+        whole.clear();
+        byte[] bytes = new byte[whole.remaining()];
+        whole.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.flowpowered.nbt.CompoundTag;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+public class UtilsTest {
+
+    @Test
+    public void batchWriteCompressedMatchesSingleWrites() throws IOException {
+        Map<Integer, CompoundTag> tags = new HashMap<>();
+        for (int y = -4; y < 4; y++) {
+            tags.put(y, Utils.emptyCube(y * 3, y, -y));
+        }
+
+        Map<Integer, ByteBuffer> encoded = Utils.writeCompressed(tags);
+
+        assertEquals(tags.keySet(), encoded.keySet());
+        for (Map.Entry<Integer, CompoundTag> entry : tags.entrySet()) {
+            ByteBuffer expected = Utils.writeCompressed(entry.getValue(), false);
+            assertArrayEquals(EmptyCubeTemplateTest.gunzip(expected), EmptyCubeTemplateTest.gunzip(encoded.get(entry.getKey())));
+        }
+    }
+
+    @Test
+    public void batchWriteCompressedOfNothing() throws IOException {
+        assertEquals(0, Utils.writeCompressed(new HashMap<Integer, CompoundTag>()).size());
+    }
+}
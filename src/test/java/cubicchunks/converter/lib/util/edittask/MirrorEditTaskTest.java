@@ -0,0 +1,90 @@
+/*
+ *  This file is part of CubicChunksConverter, licensed under the MIT License (MIT).
+ *
+ *  Copyright (c) 2017-2021 contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package cubicchunks.converter.lib.util.edittask;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.flowpowered.nbt.ByteArrayTag;
+import com.flowpowered.nbt.CompoundMap;
+import cubicchunks.converter.lib.util.BoundingBox;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class MirrorEditTaskTest {
+
+    @Test
+    public void blockPermutationMirrorsX() {
+        for (int i = 0; i < 4096; i++) {
+            int mirrored = MirrorEditTask.X_BLOCK_INDEX[i];
+            assertEquals(15 - (i & 15), mirrored & 15);
+            assertEquals(i & ~15, mirrored & ~15);
+            assertEquals(i, MirrorEditTask.X_BLOCK_INDEX[mirrored]);
+        }
+    }
+
+    @Test
+    public void blockPermutationMirrorsZ() {
+        for (int i = 0; i < 4096; i++) {
+            int mirrored = MirrorEditTask.Z_BLOCK_INDEX[i];
+            assertEquals(15 - (i >> 4 & 15), mirrored >> 4 & 15);
+            assertEquals(i & ~0xF0, mirrored & ~0xF0);
+            assertEquals(i, MirrorEditTask.Z_BLOCK_INDEX[mirrored]);
+        }
+    }
+
+    @Test
+    public void metadataMirroredTwiceIsUnchanged() {
+        for (byte[] table : new byte[][]{MirrorEditTask.X_METADATA, MirrorEditTask.Z_METADATA}) {
+            for (int i = 0; i < 4096; i++) {
+                int mirrored = table[i];
+                assertEquals("block " + (i >> 4) + " meta " + (i & 15), i & 15, table[i & ~15 | mirrored]);
+            }
+        }
+    }
+
+    @Test
+    public void nibbleArrayFollowsBlockPermutation() {
+        testNibbleArray(MirrorEditTask.Axis.X, MirrorEditTask.X_BLOCK_INDEX);
+        testNibbleArray(MirrorEditTask.Axis.Z, MirrorEditTask.Z_BLOCK_INDEX);
+    }
+
+    private static void testNibbleArray(MirrorEditTask.Axis axis, int[] blockIndex) {
+        MirrorEditTask task = new MirrorEditTask(new BoundingBox(0, 0, 0, 0, 0, 0), axis);
+        byte[] original = new byte[2048];
+        new Random(42).nextBytes(original);
+        CompoundMap section = new CompoundMap();
+        section.put(new ByteArrayTag("SkyLight", original.clone()));
+
+        task.mirrorNibbleArray(section, "SkyLight");
+        byte[] mirrored = (byte[]) section.get("SkyLight").getValue();
+        for (int i = 0; i < 4096; i++) {
+            assertEquals(EditTask.nibbleGetAtIndex(original, i), EditTask.nibbleGetAtIndex(mirrored, blockIndex[i]));
+        }
+
+        task.mirrorNibbleArray(section, "SkyLight");
+        assertArrayEquals(original, (byte[]) section.get("SkyLight").getValue());
+    }
+}